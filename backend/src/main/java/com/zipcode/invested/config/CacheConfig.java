@@ -20,19 +20,11 @@ public class CacheConfig {
     public CacheManager cacheManager() {
         SimpleCacheManager cacheManager = new SimpleCacheManager();
         
-        CaffeineCache quotesCache = buildCache("quotes", 1, TimeUnit.MINUTES);
         CaffeineCache searchCache = buildCache("search", 1, TimeUnit.MINUTES);
-        CaffeineCache trendingCache = buildCache("trending", 1, TimeUnit.MINUTES);
-        CaffeineCache cryptoQuoteCache = buildCache("cryptoQuote", 1, TimeUnit.MINUTES);
         CaffeineCache cryptoSearchCache = buildCache("cryptoSearch", 1, TimeUnit.MINUTES);
         
-        CaffeineCache historicalCache = buildCache("twelveHistorical", 24, TimeUnit.HOURS);
-        CaffeineCache cryptoHistoricalCache = buildCache("cryptoHistorical", 24, TimeUnit.HOURS);
-        
         cacheManager.setCaches(Arrays.asList(
-            quotesCache, searchCache, trendingCache, 
-            cryptoQuoteCache, cryptoSearchCache,
-            historicalCache, cryptoHistoricalCache
+            searchCache, cryptoSearchCache
         ));
         
         return cacheManager;
@@ -0,0 +1,54 @@
+package com.zipcode.invested.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+@Configuration
+public class HttpClientConfig {
+
+    private final Environment env;
+
+    public HttpClientConfig(Environment env) {
+        this.env = env;
+    }
+
+    @Bean(destroyMethod = "close")
+    public HttpClientPools httpClientPools() {
+        return new HttpClientPools();
+    }
+
+    @Bean
+    public RestTemplate finnhubRestTemplate(HttpClientPools pools) {
+        return new RestTemplate(pools.requestFactory("finnhub", settings("finnhub", 20, 10_000)));
+    }
+
+    @Bean
+    public RestTemplate coinMarketCapRestTemplate(HttpClientPools pools) {
+        return new RestTemplate(pools.requestFactory("coinmarketcap", settings("coinmarketcap", 10, 10_000)));
+    }
+
+    @Bean
+    public RestTemplate twelveDataRestTemplate(HttpClientPools pools) {
+        return new RestTemplate(pools.requestFactory("twelvedata", settings("twelvedata", 10, 15_000)));
+    }
+
+    @Bean
+    public ClientHttpRequestFactory huggingFaceRequestFactory(HttpClientPools pools) {
+        // model responses can take a while, so this pool gets a longer read timeout
+        return pools.requestFactory("huggingface", settings("huggingface", 10, 60_000));
+    }
+
+    // http.client.<provider>.max-connections / connect-timeout-ms / read-timeout-ms / pool-wait-ms
+    private HttpClientPools.Settings settings(String provider, int defaultMaxConnections, long defaultReadTimeoutMillis) {
+        String prefix = "http.client." + provider + ".";
+        return new HttpClientPools.Settings(
+                env.getProperty(prefix + "max-connections", Integer.class, defaultMaxConnections),
+                env.getProperty(prefix + "connect-timeout-ms", Long.class, 3_000L),
+                env.getProperty(prefix + "read-timeout-ms", Long.class, defaultReadTimeoutMillis),
+                env.getProperty(prefix + "pool-wait-ms", Long.class, 2_000L)
+        );
+    }
+}
@@ -0,0 +1,104 @@
+package com.zipcode.invested.config;
+
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One pooled Apache HttpClient per upstream provider. Each pool has its own connection
+ * limit and timeouts, and its usage is reported through {@link #getStats()}.
+ */
+public class HttpClientPools implements AutoCloseable {
+
+    public static class Settings {
+        final int maxConnections;
+        final long connectTimeoutMillis;
+        final long readTimeoutMillis;
+        final long poolWaitMillis;
+
+        public Settings(int maxConnections, long connectTimeoutMillis, long readTimeoutMillis, long poolWaitMillis) {
+            this.maxConnections = maxConnections;
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+            this.poolWaitMillis = poolWaitMillis;
+        }
+    }
+
+    private final Map<String, PoolingHttpClientConnectionManager> managers = new LinkedHashMap<>();
+    private final Map<String, CloseableHttpClient> clients = new LinkedHashMap<>();
+
+    public synchronized HttpComponentsClientHttpRequestFactory requestFactory(String provider, Settings settings) {
+        return new HttpComponentsClientHttpRequestFactory(client(provider, settings));
+    }
+
+    public synchronized Map<String, Map<String, Integer>> getStats() {
+        Map<String, Map<String, Integer>> stats = new LinkedHashMap<>();
+        managers.forEach((provider, manager) -> {
+            PoolStats total = manager.getTotalStats();
+            Map<String, Integer> pool = new LinkedHashMap<>();
+            pool.put("leased", total.getLeased());
+            pool.put("available", total.getAvailable());
+            pool.put("pending", total.getPending());
+            pool.put("max", total.getMax());
+            stats.put(provider, pool);
+        });
+        return stats;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (CloseableHttpClient client : clients.values()) {
+            try {
+                client.close();
+            } catch (IOException ignored) {
+            }
+        }
+        clients.clear();
+        managers.clear();
+    }
+
+    private HttpClient client(String provider, Settings settings) {
+        CloseableHttpClient existing = clients.get(provider);
+        if (existing != null) {
+            return existing;
+        }
+
+        // every request to a provider goes to one host, so the per-route limit is the pool size
+        PoolingHttpClientConnectionManager manager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxConnections)
+                .setMaxConnPerRoute(settings.maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMillis))
+                        .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeoutMillis))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .build();
+
+        // gzip/deflate responses are requested and decoded by HttpClient's default content compression
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(manager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.poolWaitMillis))
+                        .setResponseTimeout(Timeout.ofMilliseconds(settings.readTimeoutMillis))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+
+        managers.put(provider, manager);
+        clients.put(provider, client);
+        return client;
+    }
+}
@@ -0,0 +1,74 @@
+package com.zipcode.invested.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import java.util.Map;
+
+/**
+ * JDBC batching for Hibernate writes, and the id sequences that make it possible.
+ *
+ * {@code Transaction} and {@code PortfolioPosition} take ids from pooled sequences so their inserts
+ * can be batched. Tables created before that switch already hold IDENTITY ids, so on startup each
+ * sequence is moved past the table's highest id if it is behind. This happens as soon as the
+ * EntityManagerFactory has built the schema and before it is handed to any repository, so no
+ * request or scheduled job can take an id from a sequence that hasn't been moved yet.
+ */
+@Configuration
+public class JpaBatchingConfig {
+
+    // table -> sequence, and the allocation size; must match the entities' @SequenceGenerator
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "transaction", "transaction_seq",
+            "portfolio_position", "portfolio_position_seq");
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatching(@Value("${jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.put("hibernate.jdbc.batch_size", batchSize);
+            properties.put("hibernate.order_inserts", true);
+            properties.put("hibernate.order_updates", true);
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor alignIdSequences(ObjectProvider<JdbcTemplate> jdbcTemplate) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // the factory bean is initialized once, with the schema already built
+                if (bean instanceof AbstractEntityManagerFactoryBean factoryBean) {
+                    align(factoryBean.getNativeEntityManagerFactory(), jdbcTemplate.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void align(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        SEQUENCES.forEach((table, sequence) -> {
+            Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+            if (maxId == null) return;
+
+            Long next = jdbcTemplate.queryForObject(
+                    dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+            // the pooled optimizer hands out the block ending at the value it reads
+            if (next != null && next - ALLOCATION_SIZE < maxId) {
+                long restart = maxId + ALLOCATION_SIZE;
+                jdbcTemplate.execute(dialect.getSequenceSupport().getRestartSequenceString(sequence, restart));
+                System.out.println("Moved " + sequence + " past existing " + table + " ids to " + restart);
+            }
+        });
+    }
+}
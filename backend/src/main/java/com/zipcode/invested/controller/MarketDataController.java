@@ -4,11 +4,23 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.zipcode.invested.config.HttpClientPools;
 import com.zipcode.invested.service.CoinMarketCapService;
 import com.zipcode.invested.service.FinnhubService;
+import com.zipcode.invested.service.MarketDataProviders;
+import com.zipcode.invested.service.MarketDataService;
+import com.zipcode.invested.service.ProviderRateLimiter;
+import com.zipcode.invested.service.QuoteStreamHub;
+import com.zipcode.invested.service.TrendingFeed;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/market")
@@ -16,11 +28,30 @@ public class MarketDataController {
 
     private final FinnhubService finnhubService;
     private final CoinMarketCapService coinMarketCapService;
+    private final MarketDataService marketDataService;
+    private final HttpClientPools httpClientPools;
+    private final ProviderRateLimiter rateLimiter;
+    private final QuoteStreamHub quoteStreamHub;
+    private final TrendingFeed trendingFeed;
+    private final MarketDataProviders marketDataProviders;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public MarketDataController(FinnhubService finnhubService, CoinMarketCapService coinMarketCapService) {
+    public MarketDataController(FinnhubService finnhubService,
+                                CoinMarketCapService coinMarketCapService,
+                                MarketDataService marketDataService,
+                                HttpClientPools httpClientPools,
+                                ProviderRateLimiter rateLimiter,
+                                QuoteStreamHub quoteStreamHub,
+                                TrendingFeed trendingFeed,
+                                MarketDataProviders marketDataProviders) {
         this.finnhubService = finnhubService;
         this.coinMarketCapService = coinMarketCapService;
+        this.marketDataService = marketDataService;
+        this.httpClientPools = httpClientPools;
+        this.rateLimiter = rateLimiter;
+        this.quoteStreamHub = quoteStreamHub;
+        this.trendingFeed = trendingFeed;
+        this.marketDataProviders = marketDataProviders;
     }
 
     @GetMapping("/search")
@@ -82,57 +113,70 @@ public class MarketDataController {
     }
 
     @GetMapping("/quote")
-    public ResponseEntity<String> getQuote(@RequestParam String symbol) {
+    public ResponseEntity<?> getQuote(@RequestParam String symbol) {
         try {
-            if (symbol.startsWith("CRYPTO:")) {
-                String cryptoSymbol = symbol.substring(7); 
-                String cryptoQuote = coinMarketCapService.getCryptoQuote(cryptoSymbol);
-
-                JsonNode cmcData = objectMapper.readTree(cryptoQuote);
-                JsonNode cryptoData = cmcData.path("data").path(cryptoSymbol).get(0);
-                JsonNode quote = cryptoData.path("quote").path("USD");
-
-                ObjectNode finnhubFormat = objectMapper.createObjectNode();
-                finnhubFormat.put("c", quote.path("price").asDouble());
-                finnhubFormat.put("h", quote.path("price").asDouble());
-                finnhubFormat.put("l", quote.path("price").asDouble());
-                finnhubFormat.put("o", quote.path("price").asDouble());
-                finnhubFormat.put("pc",
-                        quote.path("price").asDouble()
-                                - (quote.path("price").asDouble() * quote.path("percent_change_24h").asDouble() / 100)
-                );
-                finnhubFormat.put("dp", quote.path("percent_change_24h").asDouble());
-
-                return ResponseEntity.ok(objectMapper.writeValueAsString(finnhubFormat));
-            }
-
-            String quote = finnhubService.getQuote(symbol);
-            return ResponseEntity.ok(quote);
+            return ResponseEntity.ok(marketDataService.getQuote(symbol));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"error\": \"Failed to fetch quote: " + e.getMessage() + "\"}");
+                    .body(Map.of("error", "Failed to fetch quote: " + e.getMessage()));
         }
     }
 
     @GetMapping("/quote/crypto")
-    public ResponseEntity<String> getCryptoQuote(@RequestParam String symbol) {
+    public ResponseEntity<?> getCryptoQuote(@RequestParam String symbol) {
         try {
-            String quote = coinMarketCapService.getCryptoQuote(symbol);
-            return ResponseEntity.ok(quote);
+            return ResponseEntity.ok(marketDataService.getCryptoQuote(symbol));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"error\": \"Failed to fetch crypto quote: " + e.getMessage() + "\"}");
+                    .body(Map.of("error", "Failed to fetch crypto quote: " + e.getMessage()));
         }
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQuotes(@RequestParam String symbols) {
+        return quoteStreamHub.subscribe(new LinkedHashSet<>(Arrays.asList(symbols.split(","))));
+    }
+
+    @GetMapping("/stream/subscribers")
+    public ResponseEntity<Map<String, Integer>> getStreamSubscribers() {
+        return ResponseEntity.ok(quoteStreamHub.getSubscriberCounts());
+    }
+
+    @GetMapping("/providers")
+    public ResponseEntity<Map<String, Object>> getProviders() {
+        return ResponseEntity.ok(Map.of(
+                "chains", marketDataProviders.describe(),
+                "circuits", marketDataProviders.getBreakerStatus()));
+    }
+
     @GetMapping("/trending")
-    public ResponseEntity<String> getTrending() {
-        try {
-            String trending = finnhubService.getTrendingQuotes();
-            return ResponseEntity.ok(trending);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body("{\"error\": \"Failed to fetch trending: " + e.getMessage() + "\"}");
+    public ResponseEntity<?> getTrending() {
+        byte[] body = trendingFeed.getBody();
+        if (body == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Trending quotes are not available yet"));
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping("/price-stats")
+    public ResponseEntity<Map<String, Long>> getPriceStats() {
+        return ResponseEntity.ok(Map.of(
+                "leaderRequests", marketDataService.getLeaderRequestCount(),
+                "coalescedRequests", marketDataService.getCoalescedRequestCount(),
+                "staleHits", marketDataService.getStaleHitCount()
+        ));
+    }
+
+    @GetMapping("/http-pools")
+    public ResponseEntity<Map<String, Map<String, Integer>>> getHttpPoolStats() {
+        return ResponseEntity.ok(httpClientPools.getStats());
+    }
+
+    @GetMapping("/rate-limits")
+    public ResponseEntity<Map<String, Integer>> getRateLimitQueues() {
+        return ResponseEntity.ok(rateLimiter.getQueuedCounts());
     }
 }
@@ -4,20 +4,22 @@ import com.zipcode.invested.portfolio.Portfolio;
 import com.zipcode.invested.position.PortfolioPosition;
 import com.zipcode.invested.service.PortfolioService;
 import com.zipcode.invested.service.UserService;
-import com.zipcode.invested.service.PortfolioPositionService;
-import com.zipcode.invested.service.FinnhubService;
 import com.zipcode.invested.service.MarketDataService;
-import com.zipcode.invested.service.CoinMarketCapService;
+import com.zipcode.invested.transaction.Transaction;
 import com.zipcode.invested.user.User;
+import jakarta.validation.Valid;
+import com.zipcode.invested.dto.BatchOrderRequest;
 import com.zipcode.invested.dto.BuyRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zipcode.invested.dto.PortfolioSummary;
+import com.zipcode.invested.dto.UserHoldings;
+import com.zipcode.invested.market.Downsampler;
 import com.zipcode.invested.service.PortfolioSummaryService;
-import com.zipcode.invested.service.TwelveDataService;
+import com.zipcode.invested.service.HistoricalPerformanceService;
+import com.zipcode.invested.service.HoldingsLedgerService;
+import com.zipcode.invested.service.PortfolioRiskService;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -25,6 +27,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.math.RoundingMode;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/portfolios")
@@ -33,31 +36,26 @@ public class PortfolioController {
 
     private final PortfolioService portfolioService;
     private final UserService userService;
-    private final PortfolioPositionService positionService;
-    private final FinnhubService finnhubService;
-    private final ObjectMapper objectMapper;
     private final PortfolioSummaryService portfolioSummaryService;
-    private final TwelveDataService twelveDataService;
-    private final CoinMarketCapService coinMarketCapService;
+    private final HistoricalPerformanceService historicalPerformanceService;
+    private final HoldingsLedgerService holdingsLedgerService;
+    private final PortfolioRiskService portfolioRiskService;
     private final MarketDataService marketDataService;
 
 
     public PortfolioController(PortfolioService portfolioService, 
                               UserService userService,
-                              PortfolioPositionService positionService,
-                              FinnhubService finnhubService, 
                               PortfolioSummaryService portfolioSummaryService,
-                              TwelveDataService twelveDataService,
-                              CoinMarketCapService coinMarketCapService,
+                              HistoricalPerformanceService historicalPerformanceService,
+                              HoldingsLedgerService holdingsLedgerService,
+                              PortfolioRiskService portfolioRiskService,
                               MarketDataService marketDataService)  {
         this.portfolioService = portfolioService;
         this.userService = userService;
-        this.positionService = positionService;
-        this.finnhubService = finnhubService;
-        this.objectMapper = new ObjectMapper();
         this.portfolioSummaryService = portfolioSummaryService;
-        this.twelveDataService = twelveDataService;
-        this.coinMarketCapService = coinMarketCapService;
+        this.historicalPerformanceService = historicalPerformanceService;
+        this.holdingsLedgerService = holdingsLedgerService;
+        this.portfolioRiskService = portfolioRiskService;
         this.marketDataService = marketDataService;
     }
 
@@ -137,40 +135,62 @@ public class PortfolioController {
         }
     }
 
+    /**
+     * Buys and sells on one portfolio as a single all-or-nothing order, e.g. a rebalance.
+     */
+    @PostMapping("/{portfolioId}/orders")
+    public ResponseEntity<Map<String, Object>> executeOrders(
+            @PathVariable Long portfolioId,
+            @Valid @RequestBody BatchOrderRequest orderRequest) {
+        List<Transaction> transactions = portfolioService.executeOrders(portfolioId, orderRequest.getLegs());
+
+        List<Map<String, Object>> filled = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            Map<String, Object> leg = new HashMap<>();
+            leg.put("transactionId", transaction.getId());
+            leg.put("side", transaction.getTransactionType());
+            leg.put("symbol", transaction.getAsset().getSymbol());
+            leg.put("quantity", transaction.getQuantity());
+            leg.put("price", transaction.getPriceAtTransaction());
+            leg.put("totalAmount", transaction.getTotalAmount());
+            filled.add(leg);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("portfolioId", portfolioId);
+        response.put("cashBalance", transactions.get(0).getPortfolio().getCashBalance());
+        response.put("legs", filled);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/user/{userId}/summary")
     public ResponseEntity<Map<String, Object>> getUserPortfolioSummary(@PathVariable Long userId) {
         User user = userService.findById(userId).orElse(null);
         if (user == null) return ResponseEntity.notFound().build();
 
-        List<Portfolio> portfolios = portfolioService.findByUser(user);
+        UserHoldings holdings = portfolioService.findHoldingsByUser(user);
         
-        BigDecimal totalCash = BigDecimal.ZERO;
+        BigDecimal totalCash = holdings.getTotalCash();
         BigDecimal totalValue = BigDecimal.ZERO;
         BigDecimal totalCostBasis = BigDecimal.ZERO;
-        int totalPositions = 0;
 
-        for (Portfolio portfolio : portfolios) {
-            totalCash = totalCash.add(portfolio.getCashBalance());
-            List<PortfolioPosition> positions = positionService.findByPortfolio(portfolio);
-            totalPositions += positions.size();
-            
-            for (PortfolioPosition position : positions) {
-                try {
-                    String symbol = position.getAsset().getSymbol();
-                    BigDecimal currentPrice = marketDataService.getCurrentPrice(symbol);
-                    
-                    BigDecimal positionValue = position.getQuantity().multiply(currentPrice);
-                    totalValue = totalValue.add(positionValue);
-                    
-                    BigDecimal costBasis = position.getQuantity().multiply(position.getAverageBuyPrice());
-                    totalCostBasis = totalCostBasis.add(costBasis);
-                } catch (Exception e) {
-                    System.err.println("Error fetching price for " + position.getAsset().getSymbol() + ": " + e.getMessage());
-                    BigDecimal fallbackValue = position.getQuantity().multiply(position.getAverageBuyPrice());
-                    totalValue = totalValue.add(fallbackValue);
-                    totalCostBasis = totalCostBasis.add(fallbackValue);
-                }
+        List<PortfolioPosition> allPositions = holdings.getPositions();
+        int totalPositions = allPositions.size();
+
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(holdings.getSymbols());
+
+        for (PortfolioPosition position : allPositions) {
+            String symbol = position.getAsset().getSymbol();
+            BigDecimal currentPrice = prices.get(symbol);
+            BigDecimal costBasis = position.getQuantity().multiply(position.getAverageBuyPrice());
+
+            if (currentPrice != null) {
+                totalValue = totalValue.add(position.getQuantity().multiply(currentPrice));
+            } else {
+                System.err.println("Error fetching price for " + symbol + ": no price available");
+                totalValue = totalValue.add(costBasis);
             }
+            totalCostBasis = totalCostBasis.add(costBasis);
         }
         
         totalValue = totalValue.add(totalCash); 
@@ -190,7 +210,7 @@ public class PortfolioController {
         summary.put("totalGainLoss", totalGainLoss);
         summary.put("totalGainLossPercent", totalGainLossPercent);
         summary.put("totalPositions", totalPositions);
-        summary.put("portfolioCount", portfolios.size());
+        summary.put("portfolioCount", holdings.getPortfolios().size());
         
         return ResponseEntity.ok(summary);
     }
@@ -200,326 +220,128 @@ public class PortfolioController {
         User user = userService.findById(userId).orElse(null);
         if (user == null) return ResponseEntity.notFound().build();
 
-        List<Portfolio> portfolios = portfolioService.findByUser(user);
+        UserHoldings holdings = portfolioService.findHoldingsByUser(user);
         List<Map<String, Object>> allPositions = new ArrayList<>();
 
-        for (Portfolio portfolio : portfolios) {
-            List<PortfolioPosition> positions = positionService.findByPortfolio(portfolio);
-            
-            for (PortfolioPosition position : positions) {
-                Map<String, Object> positionData = new HashMap<>();
-                positionData.put("id", position.getId());
-                positionData.put("portfolioId", portfolio.getId());
-                positionData.put("portfolioName", portfolio.getName());
-                positionData.put("symbol", position.getAsset().getSymbol());
-                positionData.put("name", position.getAsset().getName());
-                positionData.put("assetType", position.getAsset().getAssetType());
-                positionData.put("quantity", position.getQuantity());
-                positionData.put("averageBuyPrice", position.getAverageBuyPrice());
-                positionData.put("updatedAt", position.getUpdatedAt());
-                
-                try {
-                    BigDecimal currentPrice = marketDataService.getCurrentPrice(position.getAsset().getSymbol());
-                    positionData.put("currentPrice", currentPrice.doubleValue());
-                } catch (Exception e) {
-                    System.err.println("Error fetching price for " + position.getAsset().getSymbol() + ": " + e.getMessage());
-                    positionData.put("currentPrice", position.getAverageBuyPrice().doubleValue());
-                }
-                
-                allPositions.add(positionData);
+        List<PortfolioPosition> positions = holdings.getPositions();
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(holdings.getSymbols());
+
+        for (PortfolioPosition position : positions) {
+            Portfolio portfolio = position.getPortfolio();
+            Map<String, Object> positionData = new HashMap<>();
+            positionData.put("id", position.getId());
+            positionData.put("portfolioId", portfolio.getId());
+            positionData.put("portfolioName", portfolio.getName());
+            positionData.put("symbol", position.getAsset().getSymbol());
+            positionData.put("name", position.getAsset().getName());
+            positionData.put("assetType", position.getAsset().getAssetType());
+            positionData.put("quantity", position.getQuantity());
+            positionData.put("averageBuyPrice", position.getAverageBuyPrice());
+            positionData.put("updatedAt", position.getUpdatedAt());
+
+            BigDecimal currentPrice = prices.get(position.getAsset().getSymbol());
+            if (currentPrice != null) {
+                positionData.put("currentPrice", currentPrice.doubleValue());
+            } else {
+                System.err.println("Error fetching price for " + position.getAsset().getSymbol() + ": no price available");
+                positionData.put("currentPrice", position.getAverageBuyPrice().doubleValue());
             }
+
+            allPositions.add(positionData);
         }
         
         return ResponseEntity.ok(allPositions);
     }
 
+    @GetMapping("/{id}/risk")
+    public ResponseEntity<Map<String, Object>> getRisk(@PathVariable Long id) {
+        Portfolio portfolio = portfolioService.findById(id).orElse(null);
+        if (portfolio == null) return ResponseEntity.notFound().build();
+
+        return ResponseEntity.ok(portfolioRiskService.getRisk(portfolio));
+    }
+
+    @GetMapping("/{id}/holdings")
+    public ResponseEntity<?> getHoldingsAsOf(@PathVariable Long id,
+                                             @RequestParam(required = false) String asOf) {
+        Portfolio portfolio = portfolioService.findById(id).orElse(null);
+        if (portfolio == null) return ResponseEntity.notFound().build();
+
+        Instant at;
+        try {
+            at = asOf == null ? Instant.now() : Instant.parse(asOf);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("asOf must be an ISO-8601 instant, e.g. 2025-01-31T00:00:00Z");
+        }
+
+        HoldingsLedgerService.State state = holdingsLedgerService.getHoldingsAsOf(portfolio, at);
+        List<Map<String, Object>> holdings = new ArrayList<>();
+        for (HoldingsLedgerService.Lot lot : state.getLots().values()) {
+            Map<String, Object> holding = new HashMap<>();
+            holding.put("symbol", lot.getAsset().getSymbol());
+            holding.put("assetType", lot.getAsset().getAssetType());
+            holding.put("quantity", lot.getQuantity());
+            holding.put("lastPrice", lot.getLastPrice());
+            holdings.add(holding);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("portfolioId", id);
+        result.put("asOf", at.toString());
+        result.put("cashBalance", state.getCash());
+        result.put("holdings", holdings);
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping("/user/{userId}/performance/historical")
     public ResponseEntity<?> getHistoricalPerformance(
             @PathVariable Long userId,
             @RequestParam(defaultValue = "1M") String range,
-            @RequestParam(defaultValue = "all") String assetFilter) {
+            @RequestParam(defaultValue = "all") String assetFilter,
+            @RequestParam(required = false) Integer maxPoints) {
+        if (maxPoints != null && maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
         try {
             User user = userService.findById(userId).orElse(null);
             if (user == null) return ResponseEntity.notFound().build();
 
-            long endTimestamp = System.currentTimeMillis() / 1000; 
-            long startTimestamp;
-            int dataPoints;
-            
-            switch (range.toUpperCase()) {
-                case "1D":
-                    startTimestamp = endTimestamp - (24 * 60 * 60);
-                    dataPoints = 24; 
-                    break;
-                case "1W":
-                    startTimestamp = endTimestamp - (7 * 24 * 60 * 60); // 1 week ago
-                    dataPoints = 7; // Daily for 1 week
-                    break;
-                case "1M":
-                    startTimestamp = endTimestamp - (30 * 24 * 60 * 60); // 1 month ago
-                    dataPoints = 30; // Daily for 1 month
-                    break;
-                case "3M":
-                    startTimestamp = endTimestamp - (90 * 24 * 60 * 60); // 3 months ago
-                    dataPoints = 90; // Daily for 3 months
-                    break;
-                case "1Y":
-                    startTimestamp = endTimestamp - (365 * 24 * 60 * 60); // 1 year ago
-                    dataPoints = 365; // Daily for 1 year
-                    break;
-                default:
-                    startTimestamp = endTimestamp - (30 * 24 * 60 * 60);
-                    dataPoints = 30;
-            }
-            
-            // Get user's portfolios and positions
-            List<Portfolio> portfolios = portfolioService.findByUser(user);
-            List<PortfolioPosition> allPositions = new ArrayList<>();
-            BigDecimal totalCash = BigDecimal.ZERO;
-            
-            for (Portfolio portfolio : portfolios) {
-                allPositions.addAll(positionService.findByPortfolio(portfolio));
-                totalCash = totalCash.add(portfolio.getCashBalance());
-            }
+            // Cached per user, range and filter; trades invalidate the user's entries
+            HistoricalPerformanceService.Performance performance =
+                    historicalPerformanceService.get(user, range, assetFilter);
 
-            if (!"all".equals(assetFilter)) {
-                allPositions = allPositions.stream()
-                        .filter(pos -> {
-                            String assetType = pos.getAsset().getAssetType();
-                            if ("stocks".equals(assetFilter)) {
-                                return "STOCK".equalsIgnoreCase(assetType);
-                            } else if ("crypto".equals(assetFilter)) {
-                                return "CRYPTO".equalsIgnoreCase(assetType);
-                            }
-                            return true;
-                        })
-                        .collect(java.util.stream.Collectors.toList());
+            // Build time series data, oldest point first, on the real bar timestamps
+            long[] timestamps = performance.getTimestamps();
+            double[] values = performance.getValues();
+            int[] kept = Downsampler.lttb(timestamps, values, maxPoints);
+            List<Map<String, Object>> timeSeriesData = new ArrayList<>(kept.length);
+            for (int i : kept) {
+                Map<String, Object> point = new HashMap<>();
+                point.put("timestamp", timestamps[i]);
+                point.put("value", values[i]);
+                timeSeriesData.add(point);
             }
 
-            
-            if (allPositions.isEmpty()) {
-                // Return flat line at current cash balance if no positions
-                return ResponseEntity.ok(generateFlatPerformance(totalCash, dataPoints, startTimestamp, endTimestamp));
-            }
-            
-            // Calculate historical performance
-            Map<String, Object> performance = calculateHistoricalPerformance(
-                    allPositions, totalCash, startTimestamp, endTimestamp, dataPoints, range);
-            
-            return ResponseEntity.ok(performance);
+            // Calculate metrics
+            double startValue = values[0];
+            double endValue = values[values.length - 1];
+            double change = endValue - startValue;
+            double changePercent = startValue > 0 ? (change / startValue) * 100 : 0;
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("data", timeSeriesData);
+            result.put("currentValue", endValue);
+            result.put("startValue", startValue);
+            result.put("change", change);
+            result.put("changePercent", changePercent);
+            result.put("range", performance.getRange());
+            result.put("sources", performance.getSources());
+
+            return ResponseEntity.ok(result);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "Failed to fetch historical performance: " + e.getMessage()));
         }
     }
-
-    private Map<String, Object> generateFlatPerformance(BigDecimal value, int dataPoints, long startTimestamp, long endTimestamp) {
-        List<Map<String, Object>> data = new ArrayList<>();
-        double val = value.doubleValue();
-        long timeStep = (endTimestamp - startTimestamp) / dataPoints;
-        
-        for (int i = 0; i < dataPoints; i++) {
-            Map<String, Object> point = new HashMap<>();
-            point.put("timestamp", startTimestamp + (i * timeStep));
-            point.put("value", val);
-            data.add(point);
-        }
-        
-        return Map.of(
-            "data", data, 
-            "currentValue", val, 
-            "startValue", val,
-            "change", 0, 
-            "changePercent", 0
-        );
-    }
-
-    private Map<String, Object> calculateHistoricalPerformance(
-            List<PortfolioPosition> positions, 
-            BigDecimal totalCash,
-            long startTimestamp, 
-            long endTimestamp, 
-            int dataPoints,
-            String range) throws Exception {
-        
-        // Calculate current value of each position to find top holdings
-        List<PortfolioPosition> sortedPositions = new ArrayList<>(positions);
-        sortedPositions.sort((p1, p2) -> {
-            try {
-                String symbol1 = p1.getAsset().getSymbol();
-                String symbol2 = p2.getAsset().getSymbol();
-                BigDecimal value1;
-                BigDecimal value2;
-                
-                // Get price for position 1
-                if (symbol1.startsWith("CRYPTO:")) {
-                    String cryptoSymbol1 = symbol1.replace("CRYPTO:", "");
-                    String cryptoQuote1 = coinMarketCapService.getCryptoQuote(cryptoSymbol1);
-                    JsonNode cryptoNode1 = objectMapper.readTree(cryptoQuote1);
-                    value1 = p1.getQuantity().multiply(
-                        BigDecimal.valueOf(cryptoNode1.get("data").get(cryptoSymbol1).get("quote").get("USD").get("price").asDouble())
-                    );
-                } else {
-                    String quote1 = finnhubService.getQuote(symbol1);
-                    JsonNode node1 = objectMapper.readTree(quote1);
-                    value1 = p1.getQuantity().multiply(BigDecimal.valueOf(node1.get("c").asDouble()));
-                }
-                
-                // Get price for position 2
-                if (symbol2.startsWith("CRYPTO:")) {
-                    String cryptoSymbol2 = symbol2.replace("CRYPTO:", "");
-                    String cryptoQuote2 = coinMarketCapService.getCryptoQuote(cryptoSymbol2);
-                    JsonNode cryptoNode2 = objectMapper.readTree(cryptoQuote2);
-                    value2 = p2.getQuantity().multiply(
-                        BigDecimal.valueOf(cryptoNode2.get("data").get(cryptoSymbol2).get("quote").get("USD").get("price").asDouble())
-                    );
-                } else {
-                    String quote2 = finnhubService.getQuote(symbol2);
-                    JsonNode node2 = objectMapper.readTree(quote2);
-                    value2 = p2.getQuantity().multiply(BigDecimal.valueOf(node2.get("c").asDouble()));
-                }
-                
-                return value2.compareTo(value1); // Descending order
-            } catch (Exception e) {
-                return 0;
-            }
-        });
-        
-        // Take only top 5 positions to stay under API rate limits
-        List<PortfolioPosition> topPositions = sortedPositions.stream()
-                .limit(5)
-                .collect(java.util.stream.Collectors.toList());
-        
-        System.out.println("Using top " + topPositions.size() + " positions for historical data");
-        
-        // Determine interval and outputsize based on range
-        String interval;
-        int outputsize;
-        
-        switch (range.toUpperCase()) {
-            case "1D":
-            case "LIVE":
-                interval = "1h";
-                outputsize = 24;
-                break;
-            case "1W":
-                interval = "1day";
-                outputsize = 7;
-                break;
-            case "1M":
-                interval = "1day";
-                outputsize = 30;
-                break;
-            case "3M":
-                interval = "1day";
-                outputsize = 90;
-                break;
-            case "1Y":
-            case "ALL":
-                interval = "1day";
-                outputsize = 365;
-                break;
-            default:
-                interval = "1day";
-                outputsize = 30;
-        }
-        
-        // Fetch historical data for top positions with delay between calls
-        Map<String, JsonNode> historicalDataMap = new HashMap<>();
-            
-        for (PortfolioPosition position : topPositions) {
-            String symbol = position.getAsset().getSymbol();
-            System.out.println("===> Processing position for historical data: " + symbol);
-            
-            try {
-                String histData;
-                
-                if (symbol.startsWith("CRYPTO:")) {
-                    // Handle crypto - convert CRYPTO:ETH to ETH/USD for TwelveData
-                    String cryptoSymbol = symbol.replace("CRYPTO:", "") + "/USD";
-                    histData = twelveDataService.getHistoricalData(cryptoSymbol, interval, outputsize);
-                } else {
-                    // Handle stocks
-                    histData = twelveDataService.getHistoricalData(symbol, interval, outputsize);
-                }
-                
-                JsonNode histNode = objectMapper.readTree(histData);
-                
-                // Check if we got valid data
-                if (histNode.has("values") && histNode.get("values").isArray()) {
-                    historicalDataMap.put(symbol, histNode);
-                    System.out.println("Successfully fetched historical data for " + symbol);
-                } else if (histNode.has("status") && "error".equals(histNode.get("status").asText())) {
-                    System.err.println("TwelveData error for " + symbol + ": " + histNode.get("message").asText());
-                }
-                
-                // Only sleep if this is not the last position
-                if (topPositions.indexOf(position) < topPositions.size() - 1) {
-                    Thread.sleep(2000);
-                }
-                
-            } catch (Exception e) {
-                System.err.println("Error fetching historical data for " + symbol + ": " + e.getMessage());
-            }
-        }
-        
-        // Build time series data
-        List<Map<String, Object>> timeSeriesData = new ArrayList<>();
-        
-        // TwelveData returns newest first, so we need to reverse
-        int actualDataPoints = outputsize;
-        for (int i = actualDataPoints - 1; i >= 0; i--) {
-            BigDecimal portfolioValue = totalCash; // Start with cash
-            
-            // Add up position values at this point in time
-            for (PortfolioPosition position : topPositions) {
-                String symbol = position.getAsset().getSymbol();
-                
-                JsonNode histData = historicalDataMap.get(symbol);
-                if (histData != null && histData.has("values")) {
-                    JsonNode values = histData.get("values");
-                    
-                    if (values.isArray() && i < values.size()) {
-                        JsonNode dataPoint = values.get(i);
-                        double historicalPrice = dataPoint.get("close").asDouble();
-                        BigDecimal positionValue = position.getQuantity()
-                                .multiply(BigDecimal.valueOf(historicalPrice));
-                        portfolioValue = portfolioValue.add(positionValue);
-                    }
-                }
-            }
-            
-            // For positions not in top 5, use current price (flat line)
-            for (PortfolioPosition position : positions) {
-                if (!topPositions.contains(position)) {
-                    BigDecimal positionValue = position.getQuantity()
-                            .multiply(position.getAverageBuyPrice());
-                    portfolioValue = portfolioValue.add(positionValue);
-                }
-            }
-            
-            Map<String, Object> point = new HashMap<>();
-            // Use index as timestamp placeholder (will be properly formatted on frontend)
-            point.put("timestamp", startTimestamp + ((actualDataPoints - 1 - i) * (endTimestamp - startTimestamp) / actualDataPoints));
-            point.put("value", portfolioValue.doubleValue());
-            timeSeriesData.add(point);
-        }
-        
-        // Calculate metrics
-        double startValue = timeSeriesData.isEmpty() ? 0 : (double) timeSeriesData.get(0).get("value");
-        double endValue = timeSeriesData.isEmpty() ? 0 : (double) timeSeriesData.get(timeSeriesData.size() - 1).get("value");
-        double change = endValue - startValue;
-        double changePercent = startValue > 0 ? (change / startValue) * 100 : 0;
-        
-        Map<String, Object> result = new HashMap<>();
-        result.put("data", timeSeriesData);
-        result.put("currentValue", endValue);
-        result.put("startValue", startValue);
-        result.put("change", change);
-        result.put("changePercent", changePercent);
-        result.put("range", range);
-        
-        return result;
-    }
-}
\ No newline at end of file
+}
@@ -1,26 +1,28 @@
 package com.zipcode.invested.controller;
 
+import com.zipcode.invested.asset.Asset;
+import com.zipcode.invested.market.Downsampler;
 import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.service.AssetService;
 import com.zipcode.invested.service.PortfolioService;
 import com.zipcode.invested.service.PortfolioSnapshotService;
 import com.zipcode.invested.service.UserService;
-import com.zipcode.invested.service.PortfolioPositionService;
-import com.zipcode.invested.service.FinnhubService;
+import com.zipcode.invested.service.MarketDataService;
 import com.zipcode.invested.snapshot.PortfolioSnapshot;
+import com.zipcode.invested.snapshot.SnapshotCodec;
 import com.zipcode.invested.user.User;
 import com.zipcode.invested.position.PortfolioPosition;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zipcode.invested.dto.UserHoldings;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
 import java.math.BigDecimal;
 
 @RestController
@@ -30,22 +32,21 @@ public class PortfolioSnapshotController {
     private final PortfolioSnapshotService snapshotService;
     private final PortfolioService portfolioService;
     private final UserService userService;
-    private final PortfolioPositionService positionService;
-    private final FinnhubService finnhubService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MarketDataService marketDataService;
+    private final AssetService assetService;
 
     public PortfolioSnapshotController(
             PortfolioSnapshotService snapshotService,
             PortfolioService portfolioService,
             UserService userService,
-            PortfolioPositionService positionService,
-            FinnhubService finnhubService
+            MarketDataService marketDataService,
+            AssetService assetService
     ) {
         this.snapshotService = snapshotService;
         this.portfolioService = portfolioService;
         this.userService = userService;
-        this.positionService = positionService;
-        this.finnhubService = finnhubService;
+        this.marketDataService = marketDataService;
+        this.assetService = assetService;
     }
 
     @GetMapping("/portfolio/{portfolioId}")
@@ -67,50 +68,103 @@ public class PortfolioSnapshotController {
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    @GetMapping("/portfolio/{portfolioId}/history")
+    public ResponseEntity<List<Map<String, Object>>> getHistory(
+            @PathVariable Long portfolioId,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to) {
+        Portfolio portfolio = portfolioService.findById(portfolioId).orElse(null);
+        if (portfolio == null) return ResponseEntity.notFound().build();
+
+        Instant end;
+        Instant start;
+        try {
+            end = to == null ? Instant.now() : Instant.parse(to);
+            start = from == null ? end.minus(24, ChronoUnit.HOURS) : Instant.parse(from);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("from and to must be ISO-8601 instants, e.g. 2025-01-31T00:00:00Z");
+        }
+
+        Map<Long, String> symbols = new HashMap<>();
+        List<Map<String, Object>> history = new ArrayList<>();
+        snapshotService.readHistory(portfolio, start, end, (capturedAt, state) -> {
+            List<Map<String, Object>> holdings = new ArrayList<>(state.size());
+            state.forEach((assetId, quantity, price, value) -> {
+                Map<String, Object> holding = new HashMap<>();
+                holding.put("symbol", symbols.computeIfAbsent(assetId,
+                        id -> assetService.findById(id).map(Asset::getSymbol).orElse("#" + id)));
+                holding.put("quantity", SnapshotCodec.fromMicros(quantity));
+                holding.put("price", SnapshotCodec.fromMicros(price));
+                holding.put("value", SnapshotCodec.fromCents(value));
+                holdings.add(holding);
+            });
+
+            Map<String, Object> point = new HashMap<>();
+            point.put("capturedAt", capturedAt.toString());
+            point.put("cashBalance", SnapshotCodec.fromCents(state.getCashCents()));
+            point.put("totalValue", SnapshotCodec.fromCents(state.getTotalCents()));
+            point.put("holdings", holdings);
+            history.add(point);
+        });
+
+        return ResponseEntity.ok(history);
+    }
+
     @GetMapping("/user/{userId}/chart-data")
-    public ResponseEntity<List<Map<String, Object>>> getChartData(@PathVariable Long userId) {
+    public ResponseEntity<List<Map<String, Object>>> getChartData(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "1D") String range,
+            @RequestParam(required = false) Integer maxPoints) {
         User user = userService.findById(userId).orElse(null);
         if (user == null) return ResponseEntity.notFound().build();
-        
-        List<Portfolio> portfolios = portfolioService.findByUser(user);
-        
-        // Calculate current total value
-        BigDecimal totalValue = BigDecimal.ZERO;
-        for (Portfolio portfolio : portfolios) {
-            totalValue = totalValue.add(portfolio.getCashBalance());
-            List<PortfolioPosition> positions = positionService.findByPortfolio(portfolio);
-            for (PortfolioPosition position : positions) {
-                try {
-                    String quoteJson = finnhubService.getQuote(position.getAsset().getSymbol());
-                    JsonNode quoteNode = objectMapper.readTree(quoteJson);
-                    BigDecimal currentPrice = BigDecimal.valueOf(quoteNode.get("c").asDouble());
-                    BigDecimal positionValue = position.getQuantity().multiply(currentPrice);
-                    totalValue = totalValue.add(positionValue);
-                } catch (Exception e) {
-                    BigDecimal fallbackValue = position.getQuantity().multiply(position.getAverageBuyPrice());
-                    totalValue = totalValue.add(fallbackValue);
-                }
-            }
+
+        Instant to = Instant.now();
+        Instant from = switch (range.toUpperCase()) {
+            case "1W" -> to.minus(7, ChronoUnit.DAYS);
+            case "1M" -> to.minus(30, ChronoUnit.DAYS);
+            case "3M" -> to.minus(90, ChronoUnit.DAYS);
+            case "1Y" -> to.minus(365, ChronoUnit.DAYS);
+            default -> to.minus(24, ChronoUnit.HOURS);
+        };
+
+        // Points captured by PortfolioSnapshotJob, summed across the user's portfolios per capture
+        List<Object[]> rows = snapshotService.findUserValues(user, from, to);
+        long[] timestamps = new long[rows.size()];
+        double[] values = new double[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            timestamps[i] = ((Instant) rows.get(i)[0]).getEpochSecond();
+            values[i] = ((BigDecimal) rows.get(i)[1]).doubleValue();
+        }
+
+        int[] kept = Downsampler.lttb(timestamps, values, maxPoints);
+        List<Map<String, Object>> chartData = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            Map<String, Object> dataPoint = new HashMap<>();
+            dataPoint.put("timestamp", rows.get(i)[0].toString());
+            dataPoint.put("value", values[i]);
+            chartData.add(dataPoint);
         }
-        
-        // Generate 24 hours of mock data with realistic variation
-        List<Map<String, Object>> chartData = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        Random random = new Random(42); // Fixed seed for consistent demo data
-        
-        for (int i = 23; i >= 0; i--) {
-            LocalDateTime timestamp = now.minusHours(i);
-            
-            // Add small random variation (±2% max)
-            double variation = 1.0 + (random.nextDouble() - 0.5) * 0.04; // -2% to +2%
-            BigDecimal variedValue = totalValue.multiply(BigDecimal.valueOf(variation));
-            
+
+        if (chartData.isEmpty()) {
+            // Nothing captured yet: a single point at the current value
             Map<String, Object> dataPoint = new HashMap<>();
-            dataPoint.put("timestamp", timestamp.toString());
-            dataPoint.put("value", variedValue.doubleValue());
+            dataPoint.put("timestamp", to.toString());
+            dataPoint.put("value", currentValue(user).doubleValue());
             chartData.add(dataPoint);
         }
-        
+
         return ResponseEntity.ok(chartData);
     }
-}
\ No newline at end of file
+
+    private BigDecimal currentValue(User user) {
+        UserHoldings holdings = portfolioService.findHoldingsByUser(user);
+        BigDecimal totalValue = holdings.getTotalCash();
+
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(holdings.getSymbols());
+        for (PortfolioPosition position : holdings.getPositions()) {
+            BigDecimal price = prices.getOrDefault(position.getAsset().getSymbol(), position.getAverageBuyPrice());
+            totalValue = totalValue.add(position.getQuantity().multiply(price));
+        }
+        return totalValue;
+    }
+}
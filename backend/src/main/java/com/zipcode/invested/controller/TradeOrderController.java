@@ -0,0 +1,46 @@
+package com.zipcode.invested.controller;
+
+import com.zipcode.invested.dto.PlaceOrderRequest;
+import com.zipcode.invested.order.TradeOrder;
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.service.OrderEngine;
+import com.zipcode.invested.service.PortfolioService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/orders")
+@CrossOrigin(origins = "http://localhost:5173")
+public class TradeOrderController {
+
+    private final OrderEngine orderEngine;
+    private final PortfolioService portfolioService;
+
+    public TradeOrderController(OrderEngine orderEngine, PortfolioService portfolioService) {
+        this.orderEngine = orderEngine;
+        this.portfolioService = portfolioService;
+    }
+
+    @PostMapping
+    public ResponseEntity<TradeOrder> place(@Valid @RequestBody PlaceOrderRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(orderEngine.place(request));
+    }
+
+    @GetMapping("/portfolio/{portfolioId}")
+    public ResponseEntity<List<TradeOrder>> getByPortfolio(@PathVariable Long portfolioId) {
+        Portfolio portfolio = portfolioService.findById(portfolioId).orElse(null);
+        if (portfolio == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(orderEngine.findByPortfolio(portfolio));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<TradeOrder> cancel(@PathVariable Long id) {
+        return ResponseEntity.ok(orderEngine.cancel(id));
+    }
+}
@@ -6,20 +6,30 @@ import com.zipcode.invested.portfolio.Portfolio;
 import com.zipcode.invested.portfolio.PortfolioRepository;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/transactions")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173", exposedHeaders = TransactionController.NEXT_CURSOR)
 public class TransactionController {
 
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+
     private final TransactionService transactionService;
     private final PortfolioRepository portfolioRepository;
+    private final JsonMapper jsonMapper;
 
-    public TransactionController(TransactionService transactionService, PortfolioRepository portfolioRepository) {
+    public TransactionController(TransactionService transactionService, PortfolioRepository portfolioRepository,
+                                 JsonMapper jsonMapper) {
         this.transactionService = transactionService;
         this.portfolioRepository = portfolioRepository;
+        this.jsonMapper = jsonMapper;
     }
 
     @GetMapping("/portfolio/{portfolioId}")
@@ -31,17 +41,45 @@ public class TransactionController {
         return ResponseEntity.ok(transactionService.findByPortfolio(portfolio));
     }
 
+    /**
+     * Newest first. With {@code limit}, a full page carries the cursor for the next one in
+     * {@value #NEXT_CURSOR}; without it, the whole history is returned.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<Transaction>> getTransactionsByUser(@PathVariable Long userId) {
-        List<Portfolio> portfolios = portfolioRepository.findAll().stream()
-            .filter(p -> p.getUser().getId().equals(userId))
-            .toList();
-        
-        List<Transaction> allTransactions = portfolios.stream()
-            .flatMap(p -> transactionService.findByPortfolio(p).stream())
-            .sorted((a, b) -> b.getTransactionDate().compareTo(a.getTransactionDate()))
-            .toList();
-        
-        return ResponseEntity.ok(allTransactions);
+    public ResponseEntity<List<Transaction>> getTransactionsByUser(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        List<Transaction> transactions = transactionService.findByUser(userId, limit, cursor);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (limit != null && transactions.size() == limit) {
+            response.header(NEXT_CURSOR, TransactionService.cursorOf(transactions.get(transactions.size() - 1)));
+        }
+        return response.body(transactions);
+    }
+
+    /**
+     * The whole history as newline-delimited JSON, written page by page rather than collected into
+     * one array first. Pages are read between writes, so a slow client never holds a connection.
+     */
+    @GetMapping(value = "/user/{userId}/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamTransactionsByUser(@PathVariable Long userId) {
+        StreamingResponseBody body = out -> {
+            int[] written = {0};
+            transactionService.streamByUser(userId, transaction -> {
+                try {
+                    out.write(jsonMapper.writeValueAsBytes(transaction));
+                    out.write('\n');
+                    if (++written[0] % 100 == 0) {
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok().header("Content-Type", NDJSON).body(body);
     }
 }
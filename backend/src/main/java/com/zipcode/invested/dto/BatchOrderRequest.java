@@ -0,0 +1,23 @@
+package com.zipcode.invested.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public class BatchOrderRequest {
+
+    @NotEmpty(message = "legs are required")
+    @Size(max = 500, message = "at most 500 legs per order")
+    private List<@Valid OrderLeg> legs;
+
+    public BatchOrderRequest() {}
+
+    public BatchOrderRequest(List<OrderLeg> legs) {
+        this.legs = legs;
+    }
+
+    public List<OrderLeg> getLegs() { return legs; }
+    public void setLegs(List<OrderLeg> legs) { this.legs = legs; }
+}
@@ -0,0 +1,69 @@
+package com.zipcode.invested.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+
+/**
+ * One buy or sell in a batch order. Sells name the asset by symbol and type like buys do;
+ * {@code assetName} is only used when a buy creates the asset.
+ */
+public class OrderLeg {
+
+    @NotBlank(message = "side is required")
+    @Pattern(regexp = "(?i)BUY|SELL", message = "side must be BUY or SELL")
+    private String side;
+
+    @NotBlank(message = "symbol is required")
+    private String symbol;
+
+    private String assetName;
+
+    @NotBlank(message = "assetType is required")
+    private String assetType;
+
+    @NotNull(message = "quantity is required")
+    @Positive(message = "quantity must be greater than 0")
+    private BigDecimal quantity;
+
+    @NotNull(message = "price is required")
+    @Positive(message = "price must be greater than 0")
+    private BigDecimal price;
+
+    public OrderLeg() {}
+
+    public OrderLeg(String side, String symbol, String assetName, String assetType,
+                    BigDecimal quantity, BigDecimal price) {
+        this.side = side;
+        this.symbol = symbol;
+        this.assetName = assetName;
+        this.assetType = assetType;
+        this.quantity = quantity;
+        this.price = price;
+    }
+
+    public boolean isBuy() {
+        return "BUY".equalsIgnoreCase(side);
+    }
+
+    public String getSide() { return side; }
+    public void setSide(String side) { this.side = side; }
+
+    public String getSymbol() { return symbol; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+
+    public String getAssetName() { return assetName; }
+    public void setAssetName(String assetName) { this.assetName = assetName; }
+
+    public String getAssetType() { return assetType; }
+    public void setAssetType(String assetType) { this.assetType = assetType; }
+
+    public BigDecimal getQuantity() { return quantity; }
+    public void setQuantity(BigDecimal quantity) { this.quantity = quantity; }
+
+    public BigDecimal getPrice() { return price; }
+    public void setPrice(BigDecimal price) { this.price = price; }
+}
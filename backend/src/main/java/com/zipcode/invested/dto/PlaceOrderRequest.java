@@ -0,0 +1,76 @@
+package com.zipcode.invested.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+import java.math.BigDecimal;
+
+public class PlaceOrderRequest {
+
+    @NotNull(message = "portfolioId is required")
+    private Long portfolioId;
+
+    @NotBlank(message = "side is required")
+    @Pattern(regexp = "(?i)BUY|SELL", message = "side must be BUY or SELL")
+    private String side;
+
+    @NotBlank(message = "type is required")
+    @Pattern(regexp = "(?i)LIMIT|STOP", message = "type must be LIMIT or STOP")
+    private String type;
+
+    @NotBlank(message = "symbol is required")
+    private String symbol;
+
+    private String assetName;
+
+    @NotBlank(message = "assetType is required")
+    private String assetType;
+
+    @NotNull(message = "quantity is required")
+    @Positive(message = "quantity must be greater than 0")
+    private BigDecimal quantity;
+
+    @NotNull(message = "triggerPrice is required")
+    @Positive(message = "triggerPrice must be greater than 0")
+    private BigDecimal triggerPrice;
+
+    public PlaceOrderRequest() {}
+
+    public PlaceOrderRequest(Long portfolioId, String side, String type, String symbol, String assetName,
+                             String assetType, BigDecimal quantity, BigDecimal triggerPrice) {
+        this.portfolioId = portfolioId;
+        this.side = side;
+        this.type = type;
+        this.symbol = symbol;
+        this.assetName = assetName;
+        this.assetType = assetType;
+        this.quantity = quantity;
+        this.triggerPrice = triggerPrice;
+    }
+
+    public Long getPortfolioId() { return portfolioId; }
+    public void setPortfolioId(Long portfolioId) { this.portfolioId = portfolioId; }
+
+    public String getSide() { return side; }
+    public void setSide(String side) { this.side = side; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getSymbol() { return symbol; }
+    public void setSymbol(String symbol) { this.symbol = symbol; }
+
+    public String getAssetName() { return assetName; }
+    public void setAssetName(String assetName) { this.assetName = assetName; }
+
+    public String getAssetType() { return assetType; }
+    public void setAssetType(String assetType) { this.assetType = assetType; }
+
+    public BigDecimal getQuantity() { return quantity; }
+    public void setQuantity(BigDecimal quantity) { this.quantity = quantity; }
+
+    public BigDecimal getTriggerPrice() { return triggerPrice; }
+    public void setTriggerPrice(BigDecimal triggerPrice) { this.triggerPrice = triggerPrice; }
+}
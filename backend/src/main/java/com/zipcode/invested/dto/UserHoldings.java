@@ -0,0 +1,46 @@
+package com.zipcode.invested.dto;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.position.PortfolioPosition;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user's portfolios and their positions, as loaded together by
+ * {@code PortfolioRepository.findWithPositionsByUser}.
+ */
+public class UserHoldings {
+
+    private final Map<Portfolio, List<PortfolioPosition>> positionsByPortfolio;
+    private final List<Portfolio> portfolios;
+    private final List<PortfolioPosition> positions;
+
+    public UserHoldings(Map<Portfolio, List<PortfolioPosition>> positionsByPortfolio) {
+        this.positionsByPortfolio = Collections.unmodifiableMap(new LinkedHashMap<>(positionsByPortfolio));
+        this.portfolios = List.copyOf(positionsByPortfolio.keySet());
+        this.positions = positionsByPortfolio.values().stream().flatMap(List::stream).toList();
+    }
+
+    public List<Portfolio> getPortfolios() { return portfolios; }
+    public List<PortfolioPosition> getPositions() { return positions; }
+
+    public List<PortfolioPosition> getPositions(Portfolio portfolio) {
+        return positionsByPortfolio.getOrDefault(portfolio, List.of());
+    }
+
+    public BigDecimal getTotalCash() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Portfolio portfolio : portfolios) {
+            total = total.add(portfolio.getCashBalance());
+        }
+        return total;
+    }
+
+    public List<String> getSymbols() {
+        return positions.stream().map(p -> p.getAsset().getSymbol()).distinct().toList();
+    }
+}
@@ -0,0 +1,64 @@
+package com.zipcode.invested.holdings;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Holdings and cash of a portfolio after its opening balance and first {@code transactionCount}
+ * transactions, so an as-of query only has to replay the transactions since the nearest
+ * checkpoint. Checkpoint 0 is the opening balance itself.
+ */
+@Entity
+@Table(name = "portfolio_holdings_checkpoint",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"portfolio_id", "transaction_count"}),
+        indexes = @Index(name = "idx_portfolio_holdings_checkpoint_as_of", columnList = "portfolio_id, as_of"))
+public class HoldingsCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    private Portfolio portfolio;
+
+    // transaction date and id of the last transaction included
+    @Column(name = "as_of", nullable = false)
+    private Instant asOf;
+
+    @Column(nullable = false)
+    private Long lastTransactionId;
+
+    @Column(name = "transaction_count", nullable = false)
+    private int transactionCount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal cash;
+
+    // assetId=quantity@lastPrice entries separated by ';'; quantities include the opening balance
+    @Column(nullable = false, columnDefinition = "text")
+    private String holdingsData;
+
+    protected HoldingsCheckpoint() {}
+
+    public HoldingsCheckpoint(Portfolio portfolio, Instant asOf, Long lastTransactionId, int transactionCount,
+                              BigDecimal cash, String holdingsData) {
+        this.portfolio = portfolio;
+        this.asOf = asOf;
+        this.lastTransactionId = lastTransactionId;
+        this.transactionCount = transactionCount;
+        this.cash = cash;
+        this.holdingsData = holdingsData;
+    }
+
+    public Long getId() { return id; }
+    public Portfolio getPortfolio() { return portfolio; }
+    public Instant getAsOf() { return asOf; }
+    public Long getLastTransactionId() { return lastTransactionId; }
+    public int getTransactionCount() { return transactionCount; }
+    public BigDecimal getCash() { return cash; }
+    public String getHoldingsData() { return holdingsData; }
+}
@@ -0,0 +1,23 @@
+package com.zipcode.invested.holdings;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface HoldingsCheckpointRepository extends JpaRepository<HoldingsCheckpoint, Long> {
+
+    Optional<HoldingsCheckpoint> findFirstByPortfolioAndAsOfLessThanEqualOrderByTransactionCountDesc(Portfolio portfolio, Instant asOf);
+
+    boolean existsByPortfolioAndTransactionCount(Portfolio portfolio, int transactionCount);
+
+    @Transactional
+    @Modifying
+    @Query("delete from HoldingsCheckpoint c where c.portfolio = :portfolio")
+    int deleteByPortfolio(@Param("portfolio") Portfolio portfolio);
+}
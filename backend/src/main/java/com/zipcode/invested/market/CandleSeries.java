@@ -0,0 +1,96 @@
+package com.zipcode.invested.market;
+
+import java.util.Arrays;
+
+/**
+ * Immutable OHLCV bars for one symbol and interval, held as primitive columns
+ * sorted oldest to newest. Timestamps are epoch seconds.
+ */
+public final class CandleSeries {
+
+    private final String symbol;
+    private final String interval;
+    private final long[] timestamps;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final double[] volume;
+    private final String error;
+    private final String source;
+
+    public CandleSeries(String symbol, String interval, long[] timestamps,
+                        double[] open, double[] high, double[] low, double[] close, double[] volume) {
+        this(symbol, interval, timestamps, open, high, low, close, volume, null, null);
+    }
+
+    private CandleSeries(String symbol, String interval, long[] timestamps,
+                         double[] open, double[] high, double[] low, double[] close, double[] volume,
+                         String error, String source) {
+        this.symbol = symbol;
+        this.interval = interval;
+        this.timestamps = timestamps;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.error = error;
+        this.source = source;
+    }
+
+    public static CandleSeries error(String symbol, String interval, String message) {
+        return new CandleSeries(symbol, interval, new long[0], new double[0], new double[0],
+                new double[0], new double[0], new double[0], message == null ? "Unknown error" : message, null);
+    }
+
+    /**
+     * The same bars, labelled with the provider (or store) they were served from.
+     */
+    public CandleSeries withSource(String source) {
+        return new CandleSeries(symbol, interval, timestamps, open, high, low, close, volume, error, source);
+    }
+
+    public String getSymbol() { return symbol; }
+    public String getInterval() { return interval; }
+    public String getError() { return error; }
+    public String getSource() { return source; }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty() {
+        return timestamps.length == 0;
+    }
+
+    /**
+     * Returns the newest {@code count} bars, or this series if it is already that short.
+     */
+    public CandleSeries tail(int count) {
+        if (count >= size() || isError()) {
+            return this;
+        }
+        int from = size() - Math.max(0, count);
+        int to = size();
+        return new CandleSeries(symbol, interval,
+                Arrays.copyOfRange(timestamps, from, to),
+                Arrays.copyOfRange(open, from, to),
+                Arrays.copyOfRange(high, from, to),
+                Arrays.copyOfRange(low, from, to),
+                Arrays.copyOfRange(close, from, to),
+                Arrays.copyOfRange(volume, from, to),
+                null, source);
+    }
+
+    public long getTimestamp(int i) { return timestamps[i]; }
+    public double getOpen(int i) { return open[i]; }
+    public double getHigh(int i) { return high[i]; }
+    public double getLow(int i) { return low[i]; }
+    public double getClose(int i) { return close[i]; }
+    public double getVolume(int i) { return volume[i]; }
+}
@@ -0,0 +1,96 @@
+package com.zipcode.invested.market;
+
+/**
+ * Consecutive-failure circuit breaker for one upstream provider.
+ *
+ * CLOSED lets every call through. After {@code failureThreshold} failures in a row it goes OPEN
+ * and rejects calls without touching the network for {@code openMillis}. Then it goes HALF_OPEN
+ * and lets exactly one probe call through: success closes the circuit, failure opens it again for
+ * another period. Checking the state is a lock and a clock read, so a rejected call costs
+ * microseconds rather than a connect timeout.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long rejected;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = Math.max(0, openMillis);
+    }
+
+    public String getName() { return name; }
+
+    /**
+     * Whether a call may go upstream now. In HALF_OPEN only the caller that gets true is the
+     * probe; it must report back with {@link #recordSuccess()}, {@link #recordFailure()} or
+     * {@link #release()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        rejected++;
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        if (state != State.CLOSED) {
+            System.out.println("Circuit for " + name + " closed");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    /**
+     * The acquired call never went upstream (e.g. it was throttled locally). Frees the
+     * HALF_OPEN probe slot without changing the state.
+     */
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                System.err.println("Circuit for " + name + " opened after " + consecutiveFailures
+                        + " consecutive failures; retrying in " + openMillis + "ms");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejected;
+    }
+}
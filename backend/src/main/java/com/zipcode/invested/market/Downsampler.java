@@ -0,0 +1,75 @@
+package com.zipcode.invested.market;
+
+/**
+ * Thins a time series for charting with Largest-Triangle-Three-Buckets: the first and last points
+ * are kept, the rest is split into equal buckets, and from each bucket the point forming the
+ * largest triangle with the previously kept point and the next bucket's average is chosen. Peaks
+ * and troughs survive, which plain every-nth sampling would drop.
+ */
+public final class Downsampler {
+
+    private Downsampler() {}
+
+    /**
+     * Indices of the points to keep, ascending. All indices are returned when the series already
+     * fits, or when {@code maxPoints} is null.
+     *
+     * @throws IllegalArgumentException if {@code maxPoints} is less than 3
+     */
+    public static int[] lttb(long[] timestamps, double[] values, Integer maxPoints) {
+        int n = values.length;
+        if (maxPoints != null && maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
+        if (maxPoints == null || n <= maxPoints) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = i;
+            return all;
+        }
+
+        int[] kept = new int[maxPoints];
+        int k = 0;
+        kept[k++] = 0;
+
+        // the n - 2 interior points go into maxPoints - 2 buckets
+        double bucketSize = (double) (n - 2) / (maxPoints - 2);
+        int a = 0;
+        for (int b = 0; b < maxPoints - 2; b++) {
+            int start = (int) (b * bucketSize) + 1;
+            int end = (int) ((b + 1) * bucketSize) + 1;
+
+            // average of the next bucket, or the last point for the final bucket
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((b + 2) * bucketSize) + 1, n);
+            if (b == maxPoints - 3) {
+                nextStart = n - 1;
+                nextEnd = n;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += timestamps[j];
+                avgY += values[j];
+            }
+            avgX /= nextEnd - nextStart;
+            avgY /= nextEnd - nextStart;
+
+            double ax = timestamps[a];
+            double ay = values[a];
+            double largest = -1;
+            int chosen = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((ax - avgX) * (values[j] - ay) - (ax - timestamps[j]) * (avgY - ay));
+                if (area > largest) {
+                    largest = area;
+                    chosen = j;
+                }
+            }
+            kept[k++] = chosen;
+            a = chosen;
+        }
+
+        kept[k] = n - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,565 @@
+package com.zipcode.invested.market;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streaming parsers that turn provider responses straight into {@link Quote} and
+ * {@link CandleSeries} values, without building a JSON tree first.
+ */
+public final class MarketDataParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private MarketDataParser() {}
+
+    /**
+     * Parses a Finnhub /quote body ({"c":..,"d":..,"dp":..,"h":..,"l":..,"o":..,"pc":..,"t":..}).
+     */
+    public static Quote parseFinnhubQuote(String symbol, InputStream body) throws IOException {
+        double current = 0, change = 0, percentChange = 0, high = 0, low = 0, open = 0, previousClose = 0;
+        long timestamp = 0;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected Finnhub quote body for " + symbol);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "c" -> current = readDouble(parser);
+                    case "d" -> change = readDouble(parser);
+                    case "dp" -> percentChange = readDouble(parser);
+                    case "h" -> high = readDouble(parser);
+                    case "l" -> low = readDouble(parser);
+                    case "o" -> open = readDouble(parser);
+                    case "pc" -> previousClose = readDouble(parser);
+                    case "t" -> timestamp = (long) readDouble(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        return new Quote(symbol, current, change, percentChange, high, low, open, previousClose, timestamp);
+    }
+
+    /**
+     * Parses a TwelveData /quote body. Prices come as strings and {@code close} is the latest
+     * price. An error body ({"status":"error"}) gives a quote without a price, which the provider
+     * chain treats as "no data" rather than a failure.
+     */
+    public static Quote parseTwelveDataQuote(String symbol, InputStream body) throws IOException {
+        double close = 0, change = 0, percentChange = 0, high = 0, low = 0, open = 0, previousClose = 0;
+        long timestamp = 0;
+        String status = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected TwelveData quote body for " + symbol);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "close" -> close = readDouble(parser);
+                    case "change" -> change = readDouble(parser);
+                    case "percent_change" -> percentChange = readDouble(parser);
+                    case "high" -> high = readDouble(parser);
+                    case "low" -> low = readDouble(parser);
+                    case "open" -> open = readDouble(parser);
+                    case "previous_close" -> previousClose = readDouble(parser);
+                    case "timestamp" -> timestamp = (long) readDouble(parser);
+                    case "status" -> status = parser.getValueAsString();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if ("error".equals(status)) {
+            return new Quote(symbol, 0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new Quote(symbol, close, change, percentChange, high, low, open, previousClose, timestamp);
+    }
+
+    /**
+     * Parses a CoinMarketCap quotes/latest body into quotes keyed by upper-case symbol.
+     * A single response may carry any number of symbols.
+     */
+    public static Map<String, Quote> parseCoinMarketCapQuotes(InputStream body) throws IOException {
+        Map<String, Quote> quotes = new HashMap<>();
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return quotes;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"data".equals(field) || value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String symbol = parser.currentName().toUpperCase();
+                    JsonToken entry = parser.nextToken();
+                    Quote quote = null;
+
+                    if (entry == JsonToken.START_ARRAY) {
+                        // v2 lists every coin sharing the ticker; take the first, as the old lookups did
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            if (quote == null && parser.currentToken() == JsonToken.START_OBJECT) {
+                                quote = readCoinMarketCapCoin(parser, symbol);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else if (entry == JsonToken.START_OBJECT) {
+                        quote = readCoinMarketCapCoin(parser, symbol);
+                    } else {
+                        parser.skipChildren();
+                    }
+
+                    if (quote != null) {
+                        quotes.put(symbol, quote);
+                    }
+                }
+            }
+        }
+
+        return quotes;
+    }
+
+    /**
+     * Parses a TwelveData /time_series body. Provider errors ({"status":"error"}) come back
+     * as an error series rather than an exception so callers can report them per symbol.
+     *
+     * Intraday datetimes are in the exchange's local time ({@code meta.exchange_timezone}) and are
+     * converted to UTC so they line up with other providers' bars. Daily and longer bars are dates
+     * and stay at UTC midnight. A body without a timezone is read as UTC.
+     */
+    public static CandleSeries parseTwelveDataSeries(String symbol, String interval, InputStream body) throws IOException {
+        Columns columns = new Columns();
+        String status = null;
+        String message = null;
+        String exchangeTimezone = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected TwelveData body for " + symbol);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+
+                if ("status".equals(field)) {
+                    status = parser.getValueAsString();
+                } else if ("message".equals(field)) {
+                    message = parser.getValueAsString();
+                } else if ("meta".equals(field) && value == JsonToken.START_OBJECT) {
+                    exchangeTimezone = readTwelveDataTimezone(parser);
+                } else if ("values".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        readTwelveDataBar(parser, columns);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if ("error".equals(status)) {
+            return CandleSeries.error(symbol, interval, message);
+        }
+
+        // meta may come before or after values, so the zone is applied once everything is read
+        if (columns.localTimes && exchangeTimezone != null) {
+            try {
+                columns.localToUtc(ZoneId.of(exchangeTimezone));
+            } catch (DateTimeException e) {
+                // unknown zone id: leave the times as UTC
+            }
+        }
+
+        return columns.toSeries(symbol, interval);
+    }
+
+    /**
+     * Parses a Finnhub /stock/candle body ({"s":"ok","t":[..],"o":[..],"h":[..],"l":[..],"c":[..],"v":[..]}).
+     * "no_data" and error bodies come back as an error series.
+     */
+    public static CandleSeries parseFinnhubCandles(String symbol, String interval, InputStream body) throws IOException {
+        double[] t = new double[0], o = t, h = t, l = t, c = t, v = t;
+        String status = null;
+        String error = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected Finnhub candle body for " + symbol);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "s" -> status = parser.getValueAsString();
+                    case "error" -> error = parser.getValueAsString();
+                    case "t" -> t = readDoubleArray(parser);
+                    case "o" -> o = readDoubleArray(parser);
+                    case "h" -> h = readDoubleArray(parser);
+                    case "l" -> l = readDoubleArray(parser);
+                    case "c" -> c = readDoubleArray(parser);
+                    case "v" -> v = readDoubleArray(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if (error != null || !"ok".equals(status)) {
+            return CandleSeries.error(symbol, interval, error != null ? error : "Finnhub returned " + status + " for " + symbol);
+        }
+
+        Columns columns = new Columns();
+        for (int i = 0; i < t.length; i++) {
+            columns.add((long) t[i], at(o, i), at(h, i), at(l, i), at(c, i), at(v, i));
+        }
+        return columns.toSeries(symbol, interval);
+    }
+
+    /**
+     * Parses a CoinMarketCap /v2/cryptocurrency/quotes/historical body. CoinMarketCap only gives a
+     * price per point, so open, high, low and close are all that price. Timestamps are floored to
+     * {@code bucketSeconds} so daily points line up with other providers' daily bars.
+     */
+    public static CandleSeries parseCoinMarketCapHistorical(String symbol, String interval, long bucketSeconds,
+                                                            InputStream body) throws IOException {
+        Columns columns = new Columns();
+        String error = null;
+
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected CoinMarketCap historical body for " + symbol);
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("status".equals(field) && value == JsonToken.START_OBJECT) {
+                    error = readCoinMarketCapError(parser);
+                } else if ("data".equals(field) && value == JsonToken.START_OBJECT) {
+                    readCoinMarketCapHistoricalData(parser, columns, bucketSeconds);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+
+        if (error != null) {
+            return CandleSeries.error(symbol, interval, error);
+        }
+        return columns.toSeries(symbol, interval);
+    }
+
+    private static Quote readCoinMarketCapCoin(JsonParser parser, String symbol) throws IOException {
+        double price = 0;
+        double percentChange24h = 0;
+        long timestamp = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"quote".equals(field) || value != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String currency = parser.currentName();
+                JsonToken currencyValue = parser.nextToken();
+                if (!"USD".equals(currency) || currencyValue != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String usdField = parser.currentName();
+                    parser.nextToken();
+                    switch (usdField) {
+                        case "price" -> price = readDouble(parser);
+                        case "percent_change_24h" -> percentChange24h = readDouble(parser);
+                        case "last_updated" -> timestamp = readEpochSeconds(parser.getValueAsString());
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        double previousClose = price - (price * percentChange24h / 100);
+        return new Quote("CRYPTO:" + symbol, price, price - previousClose, percentChange24h,
+                price, price, price, previousClose, timestamp);
+    }
+
+    private static String readTwelveDataTimezone(JsonParser parser) throws IOException {
+        String timezone = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("exchange_timezone".equals(field)) {
+                timezone = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return timezone;
+    }
+
+    private static void readTwelveDataBar(JsonParser parser, Columns columns) throws IOException {
+        long timestamp = Long.MIN_VALUE;
+        double open = 0, high = 0, low = 0, close = 0, volume = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "datetime" -> {
+                    String text = parser.getValueAsString();
+                    timestamp = parseDateTime(text);
+                    columns.localTimes |= text != null && text.length() > 10;
+                }
+                case "open" -> open = readDouble(parser);
+                case "high" -> high = readDouble(parser);
+                case "low" -> low = readDouble(parser);
+                case "close" -> close = readDouble(parser);
+                case "volume" -> volume = readDouble(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (timestamp != Long.MIN_VALUE) {
+            columns.add(timestamp, open, high, low, close, volume);
+        }
+    }
+
+    // data is either {"quotes":[..]} or, keyed by symbol, a coin object or an array of coins; the first coin wins
+    private static void readCoinMarketCapHistoricalData(JsonParser parser, Columns columns, long bucketSeconds) throws IOException {
+        boolean read = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("quotes".equals(field) && value == JsonToken.START_ARRAY && !read) {
+                readCoinMarketCapHistoricalQuotes(parser, columns, bucketSeconds);
+                read = true;
+            } else if (value == JsonToken.START_ARRAY && !read) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (!read && parser.currentToken() == JsonToken.START_OBJECT) {
+                        readCoinMarketCapHistoricalData(parser, columns, bucketSeconds);
+                        read = columns.size > 0;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else if (value == JsonToken.START_OBJECT && !read) {
+                readCoinMarketCapHistoricalData(parser, columns, bucketSeconds);
+                read = columns.size > 0;
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private static void readCoinMarketCapHistoricalQuotes(JsonParser parser, Columns columns, long bucketSeconds) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            long timestamp = Long.MIN_VALUE;
+            double price = 0;
+            double volume = 0;
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("timestamp".equals(field)) {
+                    timestamp = readEpochSeconds(parser.getValueAsString());
+                } else if ("quote".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String currency = parser.currentName();
+                        JsonToken currencyValue = parser.nextToken();
+                        if (!"USD".equals(currency) || currencyValue != JsonToken.START_OBJECT) {
+                            parser.skipChildren();
+                            continue;
+                        }
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String usdField = parser.currentName();
+                            parser.nextToken();
+                            switch (usdField) {
+                                case "price" -> price = readDouble(parser);
+                                case "volume_24h" -> volume = readDouble(parser);
+                                default -> parser.skipChildren();
+                            }
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            if (timestamp > 0 && price > 0) {
+                long bucket = timestamp - Math.floorMod(timestamp, bucketSeconds);
+                if (columns.size > 0 && columns.timestamps[columns.size - 1] == bucket) {
+                    columns.size--; // a later point in the same bucket replaces the earlier one
+                }
+                columns.add(bucket, price, price, price, price, volume);
+            }
+        }
+    }
+
+    private static String readCoinMarketCapError(JsonParser parser) throws IOException {
+        int code = 0;
+        String message = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "error_code" -> code = (int) readDouble(parser);
+                case "error_message" -> message = parser.getValueAsString();
+                default -> parser.skipChildren();
+            }
+        }
+        return code == 0 ? null : (message != null ? message : "CoinMarketCap error " + code);
+    }
+
+    private static double[] readDoubleArray(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return new double[0];
+        }
+        double[] values = new double[64];
+        int n = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (n == values.length) values = Arrays.copyOf(values, n * 2);
+            values[n++] = readDouble(parser);
+        }
+        return Arrays.copyOf(values, n);
+    }
+
+    private static double at(double[] column, int i) {
+        return i < column.length ? column[i] : 0;
+    }
+
+    // TwelveData sends prices as strings, Finnhub and CoinMarketCap as numbers; nulls read as 0
+    private static double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        parser.skipChildren();
+        return 0;
+    }
+
+    private static long readEpochSeconds(String isoInstant) {
+        if (isoInstant == null) return 0;
+        try {
+            return Instant.parse(isoInstant).getEpochSecond();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static long parseDateTime(String text) {
+        if (text == null) return Long.MIN_VALUE;
+        try {
+            if (text.length() <= 10) {
+                return LocalDate.parse(text).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+            }
+            return LocalDateTime.parse(text.replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC);
+        } catch (Exception e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static class Columns {
+        long[] timestamps = new long[64];
+        double[] open = new double[64];
+        double[] high = new double[64];
+        double[] low = new double[64];
+        double[] close = new double[64];
+        double[] volume = new double[64];
+        int size;
+        // timestamps are wall-clock times read as if UTC (TwelveData intraday)
+        boolean localTimes;
+
+        void add(long timestamp, double o, double h, double l, double c, double v) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                open = Arrays.copyOf(open, capacity);
+                high = Arrays.copyOf(high, capacity);
+                low = Arrays.copyOf(low, capacity);
+                close = Arrays.copyOf(close, capacity);
+                volume = Arrays.copyOf(volume, capacity);
+            }
+            timestamps[size] = timestamp;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            size++;
+        }
+
+        void localToUtc(ZoneId zone) {
+            for (int i = 0; i < size; i++) {
+                timestamps[i] = LocalDateTime.ofEpochSecond(timestamps[i], 0, ZoneOffset.UTC)
+                        .atZone(zone).toEpochSecond();
+            }
+            localTimes = false;
+        }
+
+        CandleSeries toSeries(String symbol, String interval) {
+            long[] t = Arrays.copyOf(timestamps, size);
+            double[] o = Arrays.copyOf(open, size);
+            double[] h = Arrays.copyOf(high, size);
+            double[] l = Arrays.copyOf(low, size);
+            double[] c = Arrays.copyOf(close, size);
+            double[] v = Arrays.copyOf(volume, size);
+
+            // TwelveData returns newest first; store oldest first
+            if (size > 1 && t[0] > t[size - 1]) {
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    long tt = t[i]; t[i] = t[j]; t[j] = tt;
+                    double x;
+                    x = o[i]; o[i] = o[j]; o[j] = x;
+                    x = h[i]; h[i] = h[j]; h[j] = x;
+                    x = l[i]; l[i] = l[j]; l[j] = x;
+                    x = c[i]; c[i] = c[j]; c[j] = x;
+                    x = v[i]; v[i] = v[j]; v[j] = x;
+                }
+            }
+
+            return new CandleSeries(symbol, interval, t, o, h, l, c, v);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.zipcode.invested.market;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A source of quotes and candles. Each provider declares which {@link MarketDataType}s it serves
+ * and only needs to implement those methods; the rest fail with IllegalStateException.
+ */
+public interface MarketDataProvider {
+
+    /**
+     * Short name used in config and rate limiting (finnhub, coinmarketcap, twelvedata, replay).
+     */
+    String getName();
+
+    Set<MarketDataType> getSupportedTypes();
+
+    default boolean supports(MarketDataType type) {
+        return getSupportedTypes().contains(type);
+    }
+
+    /**
+     * Latest quote for a stock symbol (AAPL), or null if the provider has nothing for it.
+     */
+    default Quote getQuote(String symbol) {
+        throw new IllegalStateException(getName() + " does not serve " + MarketDataType.STOCK_QUOTE);
+    }
+
+    /**
+     * Latest quotes for bare crypto symbols (BTC, ETH), keyed by upper-case symbol.
+     * Unknown symbols are left out of the result.
+     */
+    default Map<String, Quote> getCryptoQuotes(Collection<String> symbols) {
+        throw new IllegalStateException(getName() + " does not serve " + MarketDataType.CRYPTO_QUOTE);
+    }
+
+    /**
+     * Up to {@code outputsize} bars ending at the latest one, oldest first. The requester is used
+     * to share the provider's rate limit fairly between users.
+     */
+    default CandleSeries getHistoricalData(String symbol, String interval, int outputsize, String requester) {
+        throw new IllegalStateException(getName() + " does not serve " + MarketDataType.CANDLES);
+    }
+}
@@ -0,0 +1,10 @@
+package com.zipcode.invested.market;
+
+/**
+ * Kinds of market data a {@link MarketDataProvider} can serve.
+ */
+public enum MarketDataType {
+    STOCK_QUOTE,
+    CRYPTO_QUOTE,
+    CANDLES
+}
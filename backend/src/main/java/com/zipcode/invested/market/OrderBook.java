@@ -0,0 +1,97 @@
+package com.zipcode.invested.market;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Resting trigger orders for one symbol, keyed by trigger price in fixed-point micros. Orders that
+ * fire when the price rises to their level sit in a map ordered lowest level first, and orders
+ * that fire when it falls to their level in one ordered highest first. A tick only compares the
+ * price with the first level of each map, so it costs O(log n) plus the orders it actually fires,
+ * however many orders are resting further away. Orders at the same level fire in arrival order.
+ *
+ * Not thread-safe; callers synchronize per book.
+ */
+public final class OrderBook {
+
+    private final NavigableMap<Long, ArrayDeque<Long>> risingTo = new TreeMap<>();
+    private final NavigableMap<Long, ArrayDeque<Long>> fallingTo = new TreeMap<>(Comparator.reverseOrder());
+    private final Map<Long, Resting> resting = new HashMap<>();
+
+    private static final class Resting {
+        final long level;
+        final boolean rising;
+
+        Resting(long level, boolean rising) {
+            this.level = level;
+            this.rising = rising;
+        }
+    }
+
+    public static long toMicros(BigDecimal price) {
+        return price.setScale(6, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Rests an order at {@code levelMicros}; false if it is already in the book.
+     */
+    public boolean add(long orderId, long levelMicros, boolean firesOnRise) {
+        if (resting.containsKey(orderId)) {
+            return false;
+        }
+        (firesOnRise ? risingTo : fallingTo).computeIfAbsent(levelMicros, l -> new ArrayDeque<>()).addLast(orderId);
+        resting.put(orderId, new Resting(levelMicros, firesOnRise));
+        return true;
+    }
+
+    public boolean remove(long orderId) {
+        Resting order = resting.remove(orderId);
+        if (order == null) {
+            return false;
+        }
+        NavigableMap<Long, ArrayDeque<Long>> side = order.rising ? risingTo : fallingTo;
+        ArrayDeque<Long> queue = side.get(order.level);
+        queue.remove(orderId);
+        if (queue.isEmpty()) {
+            side.remove(order.level);
+        }
+        return true;
+    }
+
+    /**
+     * Removes and returns every order the price reaches: rising orders with a level at or below it
+     * and falling orders with a level at or above it, nearest levels first.
+     */
+    public List<Long> trigger(long priceMicros) {
+        List<Long> fired = new ArrayList<>();
+        drain(risingTo, level -> level <= priceMicros, fired);
+        drain(fallingTo, level -> level >= priceMicros, fired);
+        return fired;
+    }
+
+    public int size() {
+        return resting.size();
+    }
+
+    public boolean isEmpty() {
+        return resting.isEmpty();
+    }
+
+    private void drain(NavigableMap<Long, ArrayDeque<Long>> side, LongPredicate reached, List<Long> fired) {
+        while (!side.isEmpty() && reached.test(side.firstKey())) {
+            for (Long orderId : side.pollFirstEntry().getValue()) {
+                resting.remove(orderId);
+                fired.add(orderId);
+            }
+        }
+    }
+}
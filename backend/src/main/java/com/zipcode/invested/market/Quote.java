@@ -0,0 +1,81 @@
+package com.zipcode.invested.market;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Immutable price quote in the Finnhub field layout the frontend already reads
+ * (c, d, dp, h, l, o, pc, t). Crypto quotes are mapped onto the same fields.
+ */
+public final class Quote {
+
+    private final String symbol;
+    private final double current;
+    private final double change;
+    private final double percentChange;
+    private final double high;
+    private final double low;
+    private final double open;
+    private final double previousClose;
+    private final long timestamp;
+    private final String source;
+
+    public Quote(String symbol, double current, double change, double percentChange,
+                 double high, double low, double open, double previousClose, long timestamp) {
+        this(symbol, current, change, percentChange, high, low, open, previousClose, timestamp, null);
+    }
+
+    private Quote(String symbol, double current, double change, double percentChange,
+                  double high, double low, double open, double previousClose, long timestamp, String source) {
+        this.symbol = symbol;
+        this.current = current;
+        this.change = change;
+        this.percentChange = percentChange;
+        this.high = high;
+        this.low = low;
+        this.open = open;
+        this.previousClose = previousClose;
+        this.timestamp = timestamp;
+        this.source = source;
+    }
+
+    /**
+     * The same quote, labelled with the provider that served it.
+     */
+    public Quote withSource(String source) {
+        return new Quote(symbol, current, change, percentChange, high, low, open, previousClose, timestamp, source);
+    }
+
+    @JsonProperty("symbol")
+    public String getSymbol() { return symbol; }
+
+    @JsonProperty("c")
+    public double getCurrent() { return current; }
+
+    @JsonProperty("d")
+    public double getChange() { return change; }
+
+    @JsonProperty("dp")
+    public double getPercentChange() { return percentChange; }
+
+    @JsonProperty("h")
+    public double getHigh() { return high; }
+
+    @JsonProperty("l")
+    public double getLow() { return low; }
+
+    @JsonProperty("o")
+    public double getOpen() { return open; }
+
+    @JsonProperty("pc")
+    public double getPreviousClose() { return previousClose; }
+
+    @JsonProperty("t")
+    public long getTimestamp() { return timestamp; }
+
+    @JsonProperty("source")
+    public String getSource() { return source; }
+
+    public boolean hasPrice() {
+        return current > 0.0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.zipcode.invested.market;
+
+/**
+ * A provider's rate limit would keep the caller waiting longer than it is allowed to. This is
+ * our own throttling, not an upstream failure, so it doesn't count against a circuit breaker.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final String provider;
+    private final long retryAfterMillis;
+
+    public RateLimitExceededException(String provider, long retryAfterMillis) {
+        super("Rate limit for " + provider + " reached; retry in " + Math.max(1, (retryAfterMillis + 999) / 1000) + "s");
+        this.provider = provider;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getProvider() { return provider; }
+    public long getRetryAfterMillis() { return retryAfterMillis; }
+
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
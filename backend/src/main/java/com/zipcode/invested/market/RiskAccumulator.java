@@ -0,0 +1,143 @@
+package com.zipcode.invested.market;
+
+/**
+ * Running risk statistics over a daily value series and a benchmark's closes on the same days.
+ * Each {@link #add} folds in one day's return in O(1): Welford mean/variance for the portfolio
+ * and benchmark, their co-moment for beta, the downside sum for Sortino, the running peak for
+ * drawdown, and a ring buffer of the last {@code window} returns for rolling volatility. Adding
+ * new bars never revisits old ones.
+ */
+public final class RiskAccumulator {
+
+    public static final int TRADING_DAYS = 252;
+
+    private final double dailyRiskFree;
+    private final double[] windowReturns;
+
+    private long firstTimestamp = Long.MIN_VALUE;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private double lastValue = Double.NaN;
+    private double lastBenchmark = Double.NaN;
+
+    private int n;
+    private double mean;
+    private double m2;
+    private double downsideSquares;
+
+    private int paired;
+    private double pairedMean;
+    private double benchmarkMean;
+    private double benchmarkM2;
+    private double coMoment;
+
+    private double peak = Double.NaN;
+    private double maxDrawdown;
+
+    private int windowCount;
+    private int windowNext;
+    private double windowSum;
+    private double windowSquares;
+
+    public RiskAccumulator(double annualRiskFreeRate, int window) {
+        this.dailyRiskFree = annualRiskFreeRate / TRADING_DAYS;
+        this.windowReturns = new double[Math.max(2, window)];
+    }
+
+    /**
+     * Folds in the value at {@code timestamp}; must be later than the last one added. A NaN
+     * benchmark close leaves that day out of beta. Non-positive values are skipped.
+     */
+    public void add(long timestamp, double value, double benchmarkClose) {
+        if (timestamp <= lastTimestamp) {
+            throw new IllegalArgumentException("Values must be added in time order");
+        }
+        if (!(value > 0)) {
+            return;
+        }
+        if (firstTimestamp == Long.MIN_VALUE) {
+            firstTimestamp = timestamp;
+        }
+
+        if (Double.isNaN(peak) || value > peak) {
+            peak = value;
+        }
+        maxDrawdown = Math.max(maxDrawdown, (peak - value) / peak);
+
+        if (!Double.isNaN(lastValue)) {
+            double r = value / lastValue - 1;
+
+            n++;
+            double delta = r - mean;
+            mean += delta / n;
+            m2 += delta * (r - mean);
+
+            double shortfall = Math.min(0, r - dailyRiskFree);
+            downsideSquares += shortfall * shortfall;
+
+            if (windowCount == windowReturns.length) {
+                double dropped = windowReturns[windowNext];
+                windowSum -= dropped;
+                windowSquares -= dropped * dropped;
+            } else {
+                windowCount++;
+            }
+            windowReturns[windowNext] = r;
+            windowNext = (windowNext + 1) % windowReturns.length;
+            windowSum += r;
+            windowSquares += r * r;
+
+            if (!Double.isNaN(benchmarkClose) && !Double.isNaN(lastBenchmark) && lastBenchmark > 0) {
+                double b = benchmarkClose / lastBenchmark - 1;
+                paired++;
+                double dp = r - pairedMean;
+                double db = b - benchmarkMean;
+                pairedMean += dp / paired;
+                benchmarkMean += db / paired;
+                benchmarkM2 += db * (b - benchmarkMean);
+                coMoment += dp * (b - benchmarkMean);
+            }
+        }
+
+        lastValue = value;
+        lastTimestamp = timestamp;
+        if (!Double.isNaN(benchmarkClose)) {
+            lastBenchmark = benchmarkClose;
+        }
+    }
+
+    public long getFirstTimestamp() { return firstTimestamp; }
+    public long getLastTimestamp() { return lastTimestamp; }
+    public int getObservations() { return n; }
+    public double getMaxDrawdown() { return maxDrawdown; }
+
+    /** Annualised standard deviation of daily returns, or NaN with fewer than two returns. */
+    public double getVolatility() {
+        return n < 2 ? Double.NaN : Math.sqrt(m2 / (n - 1)) * Math.sqrt(TRADING_DAYS);
+    }
+
+    /** Annualised volatility over the last {@code window} returns. */
+    public double getRollingVolatility() {
+        if (windowCount < 2) return Double.NaN;
+        double windowMean = windowSum / windowCount;
+        double variance = Math.max(0, (windowSquares - windowCount * windowMean * windowMean) / (windowCount - 1));
+        return Math.sqrt(variance) * Math.sqrt(TRADING_DAYS);
+    }
+
+    public int getRollingWindow() {
+        return windowReturns.length;
+    }
+
+    public double getBeta() {
+        return paired < 2 || benchmarkM2 == 0 ? Double.NaN : coMoment / benchmarkM2;
+    }
+
+    public double getSharpe() {
+        if (n < 2 || m2 == 0) return Double.NaN;
+        return (mean - dailyRiskFree) / Math.sqrt(m2 / (n - 1)) * Math.sqrt(TRADING_DAYS);
+    }
+
+    public double getSortino() {
+        if (n < 2 || downsideSquares == 0) return Double.NaN;
+        return (mean - dailyRiskFree) / Math.sqrt(downsideSquares / n) * Math.sqrt(TRADING_DAYS);
+    }
+}
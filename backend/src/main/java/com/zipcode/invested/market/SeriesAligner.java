@@ -0,0 +1,183 @@
+package com.zipcode.invested.market;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lines several candle series up on real bar timestamps. The shared axis is built by one k-way
+ * merge of the sorted timestamp columns (a heap of per-series cursors, O(N log k) for N bars in
+ * k series), then each series is forward-filled onto it with a single two-pointer pass, so a
+ * stock's Friday close carries over a weekend that a crypto series trades through.
+ */
+public final class SeriesAligner {
+
+    /**
+     * Which timestamps make up the shared axis.
+     */
+    public enum Calendar {
+        /** Every timestamp any series has a bar for. */
+        UNION,
+        /** The union, minus Saturdays and Sundays (UTC); crypto weekend bars are skipped. */
+        WEEKDAYS,
+        /** A regular grid at the interval step from the first to the last bar. */
+        CONTINUOUS;
+
+        public static Calendar from(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown calendar '" + name + "'; expected one of "
+                        + Arrays.toString(values()));
+            }
+        }
+    }
+
+    /**
+     * Closes on a shared axis. {@code closes[s][i]} is series {@code s}'s latest close at or before
+     * {@code timestamps[i]}, or NaN if the series hasn't started yet.
+     */
+    public static final class Aligned {
+        private final long[] timestamps;
+        private final double[][] closes;
+
+        Aligned(long[] timestamps, double[][] closes) {
+            this.timestamps = timestamps;
+            this.closes = closes;
+        }
+
+        public long[] getTimestamps() { return timestamps; }
+        public double[] getCloses(int series) { return closes[series]; }
+        public int size() { return timestamps.length; }
+    }
+
+    private SeriesAligner() {}
+
+    /**
+     * Aligns the series onto an axis covering [fromEpochSecond, latest bar].
+     * Series must be sorted oldest first, as {@link CandleSeries} always is.
+     */
+    public static Aligned align(List<CandleSeries> series, Calendar calendar, long stepSeconds, long fromEpochSecond) {
+        long[] axis = mergeTimestamps(series);
+
+        if (calendar == Calendar.WEEKDAYS) {
+            axis = weekdaysOnly(axis);
+        } else if (calendar == Calendar.CONTINUOUS && axis.length > 0) {
+            axis = grid(axis[0], axis[axis.length - 1], stepSeconds);
+        }
+
+        // crop to the requested window, but keep the bar just before it so the first point isn't empty
+        int start = lowerBound(axis, fromEpochSecond);
+        if (start > 0 && (start == axis.length || axis[start] > fromEpochSecond)) {
+            start--;
+        }
+        axis = Arrays.copyOfRange(axis, start, axis.length);
+
+        double[][] closes = new double[series.size()][];
+        for (int s = 0; s < series.size(); s++) {
+            closes[s] = forwardFill(series.get(s), axis);
+        }
+        return new Aligned(axis, closes);
+    }
+
+    private static long[] mergeTimestamps(List<CandleSeries> series) {
+        int total = 0;
+        for (CandleSeries s : series) {
+            total += s.size();
+        }
+
+        // min-heap of series indices, ordered by each series' next unmerged timestamp (head)
+        int[] cursor = new int[series.size()];
+        long[] head = new long[series.size()];
+        int[] heap = new int[series.size()];
+        int heapSize = 0;
+        for (int s = 0; s < series.size(); s++) {
+            if (series.get(s).size() > 0) {
+                head[s] = series.get(s).getTimestamp(0);
+                heap[heapSize++] = s;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, head);
+        }
+
+        long[] merged = new long[total];
+        int k = 0;
+        while (heapSize > 0) {
+            int s = heap[0];
+            long next = head[s];
+            if (k == 0 || merged[k - 1] != next) {
+                merged[k++] = next;
+            }
+            CandleSeries current = series.get(s);
+            if (++cursor[s] < current.size()) {
+                head[s] = current.getTimestamp(cursor[s]);
+            } else {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, head);
+        }
+        return k == merged.length ? merged : Arrays.copyOf(merged, k);
+    }
+
+    private static void siftDown(int[] heap, int size, int i, long[] head) {
+        int s = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && head[heap[child + 1]] < head[heap[child]]) {
+                child++;
+            }
+            if (head[heap[child]] >= head[s]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = s;
+    }
+
+    private static double[] forwardFill(CandleSeries s, long[] axis) {
+        double[] column = new double[axis.length];
+        double last = Double.NaN;
+        int j = 0;
+        for (int i = 0; i < axis.length; i++) {
+            while (j < s.size() && s.getTimestamp(j) <= axis[i]) {
+                last = s.getClose(j++);
+            }
+            column[i] = last;
+        }
+        return column;
+    }
+
+    private static long[] weekdaysOnly(long[] axis) {
+        long[] kept = new long[axis.length];
+        int k = 0;
+        for (long t : axis) {
+            DayOfWeek day = Instant.ofEpochSecond(t).atZone(ZoneOffset.UTC).getDayOfWeek();
+            if (day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY) {
+                kept[k++] = t;
+            }
+        }
+        return Arrays.copyOf(kept, k);
+    }
+
+    private static long[] grid(long first, long last, long step) {
+        int n = (int) ((last - first) / step) + 1;
+        long[] axis = new long[n];
+        for (int i = 0; i < n; i++) {
+            axis[i] = first + i * step;
+        }
+        return axis;
+    }
+
+    private static int lowerBound(long[] axis, long value) {
+        int lo = 0, hi = axis.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (axis[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,113 @@
+package com.zipcode.invested.order;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A resting limit or stop order. It stays OPEN until a price tick reaches its trigger price, and
+ * then it is filled at that tick's price through the normal trade path. OPEN orders are reloaded
+ * into the engine on startup.
+ *
+ * A buy limit fires at or below its price, a sell limit at or above; a buy stop fires at or above
+ * its price, a sell stop at or below.
+ */
+@Entity
+@Table(name = "trade_order",
+        indexes = @Index(name = "idx_trade_order_portfolio_status", columnList = "portfolio_id, status"))
+public class TradeOrder {
+
+    public enum Side { BUY, SELL }
+
+    public enum Type { LIMIT, STOP }
+
+    public enum Status { OPEN, FILLED, CANCELLED, REJECTED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    private Portfolio portfolio;
+
+    @Column(nullable = false, length = 20)
+    private String symbol;
+
+    @Column(nullable = false, length = 120)
+    private String assetName;
+
+    @Column(nullable = false, length = 30)
+    private String assetType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 4)
+    private Side side;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "order_type", nullable = false, length = 5)
+    private Type type;
+
+    @Column(nullable = false, precision = 19, scale = 6)
+    private BigDecimal quantity;
+
+    @Column(nullable = false, precision = 19, scale = 6)
+    private BigDecimal triggerPrice;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 9)
+    private Status status = Status.OPEN;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    private Instant closedAt;
+
+    @Column(precision = 19, scale = 6)
+    private BigDecimal fillPrice;
+
+    // the Transaction recorded for the fill
+    private Long transactionId;
+
+    private String statusMessage;
+
+    protected TradeOrder() {}
+
+    public TradeOrder(Portfolio portfolio, String symbol, String assetName, String assetType,
+                      Side side, Type type, BigDecimal quantity, BigDecimal triggerPrice) {
+        this.portfolio = portfolio;
+        this.symbol = symbol;
+        this.assetName = assetName;
+        this.assetType = assetType;
+        this.side = side;
+        this.type = type;
+        this.quantity = quantity;
+        this.triggerPrice = triggerPrice;
+    }
+
+    /**
+     * Whether the order fires when the price rises to its trigger (sell limit, buy stop) rather
+     * than when it falls to it (buy limit, sell stop).
+     */
+    public boolean firesOnRise() {
+        return (side == Side.SELL) == (type == Type.LIMIT);
+    }
+
+    public Long getId() { return id; }
+    public Portfolio getPortfolio() { return portfolio; }
+    public String getSymbol() { return symbol; }
+    public String getAssetName() { return assetName; }
+    public String getAssetType() { return assetType; }
+    public Side getSide() { return side; }
+    public Type getType() { return type; }
+    public BigDecimal getQuantity() { return quantity; }
+    public BigDecimal getTriggerPrice() { return triggerPrice; }
+    public Status getStatus() { return status; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getClosedAt() { return closedAt; }
+    public BigDecimal getFillPrice() { return fillPrice; }
+    public Long getTransactionId() { return transactionId; }
+    public String getStatusMessage() { return statusMessage; }
+}
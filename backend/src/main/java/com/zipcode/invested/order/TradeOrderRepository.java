@@ -0,0 +1,35 @@
+package com.zipcode.invested.order;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+public interface TradeOrderRepository extends JpaRepository<TradeOrder, Long> {
+
+    @Query("select o from TradeOrder o join fetch o.portfolio p join fetch p.user where o.status = :status")
+    List<TradeOrder> findByStatus(@Param("status") TradeOrder.Status status);
+
+    List<TradeOrder> findByPortfolioOrderByCreatedAtDesc(Portfolio portfolio);
+
+    // Moves an order out of OPEN. Returns 0 if it had already left OPEN, so a fill and a cancel
+    // racing each other can't both win. Pending writes are flushed first and the persistence context
+    // is cleared afterwards, so a later findById sees the new status rather than a cached OPEN one.
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update TradeOrder o set o.status = :status, o.closedAt = :closedAt, o.fillPrice = :fillPrice,"
+            + " o.transactionId = :transactionId, o.statusMessage = :message"
+            + " where o.id = :id and o.status = com.zipcode.invested.order.TradeOrder.Status.OPEN")
+    int closeIfOpen(@Param("id") Long id,
+                    @Param("status") TradeOrder.Status status,
+                    @Param("closedAt") Instant closedAt,
+                    @Param("fillPrice") BigDecimal fillPrice,
+                    @Param("transactionId") Long transactionId,
+                    @Param("message") String message);
+}
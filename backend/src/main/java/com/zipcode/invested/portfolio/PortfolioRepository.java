@@ -1,11 +1,30 @@
 package com.zipcode.invested.portfolio;
 
 import com.zipcode.invested.user.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
 
     List<Portfolio> findByUser(User user);
+
+    // select ... for update: trades on the same portfolio queue on its row, other portfolios are unaffected
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from Portfolio p where p.id = :id")
+    Optional<Portfolio> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Every portfolio of the user paired with each of its positions (null for a portfolio without
+     * any), with the user and the position's asset fetched in the same select.
+     */
+    @Query("select po, p from Portfolio po join fetch po.user " +
+           "left join PortfolioPosition p on p.portfolio = po left join fetch p.asset " +
+           "where po.user = :user order by po.id, p.id")
+    List<Object[]> findWithPositionsByUser(@Param("user") User user);
 }
@@ -17,8 +17,10 @@ import java.time.Instant;
 )
 public class PortfolioPosition {
 
+    // pooled sequence rather than IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "portfolio_position_id")
+    @SequenceGenerator(name = "portfolio_position_id", sequenceName = "portfolio_position_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
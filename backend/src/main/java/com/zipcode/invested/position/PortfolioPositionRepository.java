@@ -3,6 +3,8 @@ package com.zipcode.invested.position;
 import com.zipcode.invested.portfolio.Portfolio;
 import com.zipcode.invested.asset.Asset;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -12,4 +14,10 @@ public interface PortfolioPositionRepository extends JpaRepository<PortfolioPosi
     List<PortfolioPosition> findByPortfolio(Portfolio portfolio);
 
     Optional<PortfolioPosition> findByPortfolioAndAsset(Portfolio portfolio, Asset asset);
+
+    @Query("select p from PortfolioPosition p join fetch p.asset where p.portfolio = :portfolio")
+    List<PortfolioPosition> findByPortfolioWithAsset(@Param("portfolio") Portfolio portfolio);
+
+    @Query("select p from PortfolioPosition p join fetch p.asset join fetch p.portfolio po join fetch po.user")
+    List<PortfolioPosition> findAllWithAssetAndPortfolio();
 }
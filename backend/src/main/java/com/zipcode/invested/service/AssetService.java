@@ -2,7 +2,11 @@ package com.zipcode.invested.service;
 
 import com.zipcode.invested.asset.Asset;
 import com.zipcode.invested.asset.AssetRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,9 +15,12 @@ import java.util.Optional;
 public class AssetService {
 
     private final AssetRepository assetRepository;
+    private final TransactionTemplate newTransaction;
 
-    public AssetService(AssetRepository assetRepository) {
+    public AssetService(AssetRepository assetRepository, PlatformTransactionManager transactionManager) {
         this.assetRepository = assetRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     public List<Asset> findAll() {
@@ -28,7 +35,27 @@ public class AssetService {
         return assetRepository.findBySymbolAndAssetType(symbol, assetType);
     }
 
+    /**
+     * The asset for a symbol and type, created if it doesn't exist yet. Two trades in different
+     * portfolios can both be first to see a new symbol; the insert runs in its own transaction so
+     * the one that loses on the unique key reads the winner's row instead of failing the trade.
+     * Call it before the trade's own transaction starts: creating an asset from inside one would
+     * hold a second pooled connection on top of the trade's.
+     */
+    public Asset findOrCreate(String symbol, String name, String assetType) {
+        Optional<Asset> existing = assetRepository.findBySymbolAndAssetType(symbol, assetType);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        try {
+            return newTransaction.execute(status -> assetRepository.saveAndFlush(new Asset(symbol, name, assetType)));
+        } catch (DataIntegrityViolationException e) {
+            return newTransaction.execute(status -> assetRepository.findBySymbolAndAssetType(symbol, assetType))
+                    .orElseThrow(() -> e);
+        }
+    }
+
     public Asset save(Asset asset) {
         return assetRepository.save(asset);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,347 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.CandleSeries;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * On-disk candle history, one memory-mapped file per symbol and interval. Bars are stored as
+ * primitive columns (epoch-second timestamp, open, high, low, close, volume) sorted oldest first,
+ * so reads are a binary search plus array copies and survive restarts.
+ *
+ * A read only goes upstream for what is missing: the bars since the last stored one, or older
+ * history when a longer range is asked for than has ever been fetched. If the provider fails,
+ * whatever is stored is served instead.
+ */
+@Component
+public class CandleStore {
+
+    private static final int MAGIC = 0x43414E44; // "CAND"
+    // 2: TwelveData intraday bars are stored in UTC rather than exchange-local time
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 32;
+    private static final int COLUMNS = 6;
+    private static final int INITIAL_CAPACITY = 512;
+    private static final int MAX_FETCH = 5000; // TwelveData outputsize limit
+
+    private final MarketDataProviders providers;
+    private final Path dir;
+
+    private final ConcurrentHashMap<String, Segment> segments = new ConcurrentHashMap<>();
+
+    public CandleStore(
+            MarketDataProviders providers,
+            @Value("${marketdata.candles.dir:backend/candle-store}") String dir
+    ) {
+        this.providers = providers;
+        this.dir = Paths.get(dir).toAbsolutePath();
+    }
+
+    /**
+     * Returns the newest {@code outputsize} bars, topping the store up from the candle provider first
+     * when bars are missing. Returns an error series only if nothing is stored and the fetch fails.
+     */
+    public CandleSeries getSeries(String symbol, String interval, int outputsize, String requester) {
+        Segment segment = segment(symbol, interval);
+        synchronized (segment) {
+            topUp(segment, symbol, interval, outputsize, requester);
+            if (segment.count() == 0) {
+                return segment.lastError != null
+                        ? segment.lastError
+                        : CandleSeries.error(symbol, interval, "No candles available for " + symbol);
+            }
+            int from = Math.max(0, segment.count() - outputsize);
+            return segment.read(symbol, interval, from, segment.count()).withSource(segment.source());
+        }
+    }
+
+    /**
+     * Returns stored bars with timestamps in [fromEpochSecond, toEpochSecond] without going upstream.
+     */
+    public CandleSeries getRange(String symbol, String interval, long fromEpochSecond, long toEpochSecond) {
+        Segment segment = segment(symbol, interval);
+        synchronized (segment) {
+            int from = segment.lowerBound(fromEpochSecond);
+            int to = segment.lowerBound(toEpochSecond + 1);
+            return segment.read(symbol, interval, from, Math.max(from, to)).withSource(segment.source());
+        }
+    }
+
+    private void topUp(Segment segment, String symbol, String interval, int outputsize, String requester) {
+        long now = Instant.now().getEpochSecond();
+        long step = intervalSeconds(interval);
+        int count = segment.count();
+
+        int fetchSize;
+        if (count == 0 || segment.depth() < outputsize) {
+            // nothing stored yet, or a longer range than we've ever fetched: pull the full window once
+            fetchSize = outputsize;
+        } else {
+            // don't re-ask more often than a bar can change (at most hourly for daily bars and up)
+            long minRefresh = Math.min(step, 3600);
+            if (now - segment.lastFetchedAt() < minRefresh) {
+                return;
+            }
+            long missing = (now - segment.timestamp(count - 1)) / step;
+            // +1 re-fetches the newest stored bar, which may have been partial when we stored it;
+            // ask for the whole gap, not just the requested window, so no hole is left behind
+            fetchSize = (int) Math.min(missing + 1, MAX_FETCH);
+        }
+        fetchSize = Math.max(1, Math.min(fetchSize, MAX_FETCH));
+
+        CandleSeries fetched;
+        try {
+            fetched = providers.candles(symbol, interval, fetchSize, requester);
+        } catch (Exception e) {
+            System.err.println("Candle top-up failed for " + symbol + " " + interval + ": " + e.getMessage());
+            return;
+        }
+
+        if (fetched == null || fetched.isError()) {
+            segment.lastError = fetched;
+            System.err.println("Candle top-up for " + symbol + " " + interval + " returned: "
+                    + (fetched == null ? "nothing" : fetched.getError()));
+            return;
+        }
+
+        segment.lastError = null;
+        segment.lastSource = fetched.getSource();
+        // if the fetched window doesn't reach back to the stored tail there's a hole behind it,
+        // so only the fetched run counts as contiguous and the next wide read pulls in full
+        boolean gap = count > 0 && !fetched.isEmpty()
+                && fetched.getTimestamp(0) > segment.timestamp(count - 1);
+        segment.merge(fetched, gap ? fetchSize : Math.max(segment.depth(), fetchSize), now);
+        System.out.println("Stored " + fetched.size() + " " + interval + " bars for " + symbol
+                + " (" + segment.count() + " total)");
+    }
+
+    private Segment segment(String symbol, String interval) {
+        String name = symbol.trim().toUpperCase().replace('/', '_').replace(':', '_') + "_" + interval;
+        return segments.computeIfAbsent(name, n -> {
+            try {
+                Files.createDirectories(dir);
+                return new Segment(dir.resolve(n + ".bin"));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open candle store " + n, e);
+            }
+        });
+    }
+
+    static long intervalSeconds(String interval) {
+        String digits = interval.replaceAll("[^0-9]", "");
+        String unit = interval.replaceAll("[0-9]", "").toLowerCase();
+        long n = digits.isEmpty() ? 1 : Long.parseLong(digits);
+        return switch (unit) {
+            case "min" -> n * 60;
+            case "h" -> n * 3600;
+            case "day" -> n * 86400;
+            case "week" -> n * 7 * 86400;
+            case "month" -> n * 30 * 86400;
+            default -> throw new IllegalArgumentException("Unsupported candle interval: " + interval);
+        };
+    }
+
+    /**
+     * One mapped file. Layout: a 32-byte header (magic, version, capacity, count, lastFetchedAt,
+     * depth) followed by six columns of {@code capacity} 8-byte slots each. The file is rewritten
+     * at double capacity when it fills up. Callers synchronize on the segment.
+     */
+    private static final class Segment {
+        private final Path file;
+        private MappedByteBuffer buffer;
+        private int capacity;
+        CandleSeries lastError;
+        String lastSource; // provider of the latest top-up; not persisted
+
+        String source() {
+            return lastSource != null ? lastSource : "candle-store";
+        }
+
+        Segment(Path file) throws IOException {
+            this.file = file;
+            if (Files.exists(file) && Files.size(file) >= HEADER_BYTES) {
+                map(file);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                    System.err.println("Discarding unreadable candle file " + file);
+                    create(INITIAL_CAPACITY);
+                }
+            } else {
+                create(INITIAL_CAPACITY);
+            }
+        }
+
+        int count() { return buffer.getInt(12); }
+        long lastFetchedAt() { return buffer.getLong(16); }
+        int depth() { return buffer.getInt(24); }
+
+        long timestamp(int i) { return buffer.getLong(offset(0, i)); }
+        double value(int column, int i) { return buffer.getDouble(offset(column, i)); }
+
+        /**
+         * First index whose timestamp is >= the given one.
+         */
+        int lowerBound(long epochSecond) {
+            int lo = 0, hi = count();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (timestamp(mid) < epochSecond) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        CandleSeries read(String symbol, String interval, int from, int to) {
+            int n = to - from;
+            long[] ts = new long[n];
+            double[][] cols = new double[COLUMNS - 1][n];
+            for (int i = 0; i < n; i++) {
+                ts[i] = timestamp(from + i);
+                for (int c = 1; c < COLUMNS; c++) {
+                    cols[c - 1][i] = value(c, from + i);
+                }
+            }
+            return new CandleSeries(symbol, interval, ts, cols[0], cols[1], cols[2], cols[3], cols[4]);
+        }
+
+        /**
+         * Splices fetched bars into the stored ones. Fetched bars win where timestamps overlap;
+         * stored bars older or newer than the fetched window are kept.
+         */
+        void merge(CandleSeries fetched, int depth, long fetchedAt) {
+            int count = count();
+            if (fetched.isEmpty()) {
+                writeHeader(count, fetchedAt, depth);
+                return;
+            }
+
+            long first = fetched.getTimestamp(0);
+            long last = fetched.getTimestamp(fetched.size() - 1);
+            int keepBefore = lowerBound(first);
+            int resumeAfter = lowerBound(last + 1);
+            int tail = count - resumeAfter;
+            int newCount = keepBefore + fetched.size() + tail;
+
+            // stored bars newer than the fetched window have to move, so buffer them first
+            long[] tailTs = new long[tail];
+            double[][] tailCols = new double[COLUMNS - 1][tail];
+            for (int i = 0; i < tail; i++) {
+                tailTs[i] = timestamp(resumeAfter + i);
+                for (int c = 1; c < COLUMNS; c++) {
+                    tailCols[c - 1][i] = value(c, resumeAfter + i);
+                }
+            }
+
+            ensureCapacity(newCount);
+
+            int at = keepBefore;
+            for (int i = 0; i < fetched.size(); i++, at++) {
+                put(at, fetched.getTimestamp(i), fetched.getOpen(i), fetched.getHigh(i),
+                        fetched.getLow(i), fetched.getClose(i), fetched.getVolume(i));
+            }
+            for (int i = 0; i < tail; i++, at++) {
+                put(at, tailTs[i], tailCols[0][i], tailCols[1][i], tailCols[2][i], tailCols[3][i], tailCols[4][i]);
+            }
+
+            // bars are overwritten in place, so a crash mid-merge can leave old and new bars mixed
+            // under the old count; this is a cache of upstream data, not a journal, and only growth
+            // (ensureCapacity) goes through a temp file. The header is written after the bars so at
+            // least the count never points past what was written.
+            buffer.force();
+            writeHeader(newCount, fetchedAt, depth);
+            buffer.force();
+        }
+
+        private void put(int i, long ts, double open, double high, double low, double close, double volume) {
+            buffer.putLong(offset(0, i), ts);
+            buffer.putDouble(offset(1, i), open);
+            buffer.putDouble(offset(2, i), high);
+            buffer.putDouble(offset(3, i), low);
+            buffer.putDouble(offset(4, i), close);
+            buffer.putDouble(offset(5, i), volume);
+        }
+
+        private int offset(int column, int i) {
+            return HEADER_BYTES + (column * capacity + i) * 8;
+        }
+
+        private void writeHeader(int count, long fetchedAt, int depth) {
+            buffer.putInt(12, count);
+            buffer.putLong(16, fetchedAt);
+            buffer.putInt(24, depth);
+        }
+
+        private void ensureCapacity(int needed) {
+            if (needed <= capacity) return;
+
+            int newCapacity = capacity;
+            while (newCapacity < needed) newCapacity *= 2;
+
+            // columns are laid out by capacity, so growing means rewriting the file
+            int count = count();
+            long fetchedAt = lastFetchedAt();
+            int depth = depth();
+            long[] ts = new long[count];
+            double[][] cols = new double[COLUMNS - 1][count];
+            for (int i = 0; i < count; i++) {
+                ts[i] = timestamp(i);
+                for (int c = 1; c < COLUMNS; c++) {
+                    cols[c - 1][i] = value(c, i);
+                }
+            }
+
+            try {
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.deleteIfExists(tmp);
+                MappedByteBuffer grown = allocate(tmp, newCapacity);
+                buffer = grown;
+                capacity = newCapacity;
+                for (int i = 0; i < count; i++) {
+                    put(i, ts[i], cols[0][i], cols[1][i], cols[2][i], cols[3][i], cols[4][i]);
+                }
+                writeHeader(count, fetchedAt, depth);
+                buffer.force();
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow candle file " + file, e);
+            }
+        }
+
+        private void create(int initialCapacity) throws IOException {
+            Files.deleteIfExists(file);
+            buffer = allocate(file, initialCapacity);
+            capacity = initialCapacity;
+            buffer.force();
+        }
+
+        private MappedByteBuffer allocate(Path path, int cap) throws IOException {
+            long size = HEADER_BYTES + (long) COLUMNS * cap * 8;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                mapped.putInt(0, MAGIC);
+                mapped.putInt(4, VERSION);
+                mapped.putInt(8, cap);
+                return mapped;
+            }
+        }
+
+        private void map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+                capacity = buffer.getInt(8);
+            }
+        }
+    }
+}
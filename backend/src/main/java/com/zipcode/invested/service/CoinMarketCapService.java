@@ -1,40 +1,80 @@
 package com.zipcode.invested.service;
 
 import com.zipcode.invested.config.CoinMarketCapConfig;
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.MarketDataParser;
+import com.zipcode.invested.market.MarketDataProvider;
+import com.zipcode.invested.market.MarketDataType;
+import com.zipcode.invested.market.Quote;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
-import org.springframework.http.ResponseEntity;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
-public class CoinMarketCapService {
+public class CoinMarketCapService implements MarketDataProvider {
 
     @Autowired
     private CoinMarketCapConfig config;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    @Qualifier("coinMarketCapRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProviderRateLimiter rateLimiter;
 
-    @Cacheable(value = "cryptoQuote", key = "#symbol")
-    public String getCryptoQuote(String symbol) {
+    @Override
+    public String getName() {
+        return "coinmarketcap";
+    }
+
+    @Override
+    public Set<MarketDataType> getSupportedTypes() {
+        return Set.of(MarketDataType.CRYPTO_QUOTE, MarketDataType.CANDLES);
+    }
+
+    // Quotes are cached by MarketDataService, which also handles refresh and coalescing
+    public Quote getCryptoQuote(String symbol) {
+        Quote quote = getCryptoQuotes(List.of(symbol)).get(symbol.toUpperCase());
+        if (quote == null) {
+            throw new IllegalArgumentException("No CoinMarketCap quote returned for symbol: " + symbol);
+        }
+        return quote;
+    }
+
+    /**
+     * Fetches quotes for several symbols in one call. The result is keyed by upper-case symbol
+     * and leaves out any symbol CoinMarketCap didn't recognise.
+     */
+    @Override
+    public Map<String, Quote> getCryptoQuotes(Collection<String> symbols) {
         String url = UriComponentsBuilder
                 .fromUriString(config.getBaseUrl() + "/v2/cryptocurrency/quotes/latest")
-                .queryParam("symbol", symbol)
+                .queryParam("symbol", String.join(",", symbols))
+                .queryParam("skip_invalid", true)
                 .toUriString();
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("X-CMC_PRO_API_KEY", config.getApiKey());
-        headers.set("Accept", "application/json");
-
-        HttpEntity<String> entity = new HttpEntity<>(headers);
+        System.out.println("Fetching crypto quotes from CoinMarketCap for: " + symbols);
+        Map<String, Quote> quotes = rateLimiter.call("coinmarketcap", () -> restTemplate.execute(url, HttpMethod.GET,
+                request -> {
+                    request.getHeaders().set("X-CMC_PRO_API_KEY", config.getApiKey());
+                    request.getHeaders().set("Accept", "application/json");
+                },
+                response -> MarketDataParser.parseCoinMarketCapQuotes(response.getBody())));
 
-        System.out.println("Fetching crypto quote from CoinMarketCap for: " + symbol);
-        String response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class).getBody();
-        return response;
+        return quotes == null ? Map.of() : quotes;
     }
 
     @Cacheable(value = "cryptoSearch", key = "#query")
@@ -51,34 +91,59 @@ public class CoinMarketCapService {
         HttpEntity<String> entity = new HttpEntity<>(headers);
 
         System.out.println("Searching crypto on CoinMarketCap for: " + query);
-        String response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class).getBody();
+        String response = rateLimiter.call("coinmarketcap",
+                () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class).getBody());
         System.out.println("CoinMarketCap response: " + response); // ADD THIS LINE
         return response;
     }
 
-    @Cacheable(value = "cryptoHistorical", key = "#symbol + '_' + #fromDate + '_' + #toDate", unless = "#result == null")
-    public String getCryptoHistoricalData(String symbol, String fromDate, String toDate) {
+    // Fallback candle source for crypto pairs (ETH/USD); prices only, so each bar is flat at that price
+    @Override
+    public CandleSeries getHistoricalData(String symbol, String interval, int outputsize, String requester) {
+        String cmcInterval = historicalInterval(interval);
+        if (cmcInterval == null || !symbol.toUpperCase().endsWith("/USD")) {
+            return CandleSeries.error(symbol, interval, "CoinMarketCap has no " + interval + " history for " + symbol);
+        }
+        String base = symbol.substring(0, symbol.indexOf('/')).toUpperCase();
+
         String url = UriComponentsBuilder
                 .fromUriString(config.getBaseUrl() + "/v2/cryptocurrency/quotes/historical")
-                .queryParam("symbol", symbol)
-                .queryParam("time_start", fromDate)
-                .queryParam("time_end", toDate)
-                .queryParam("interval", "daily")
+                .queryParam("symbol", base)
+                .queryParam("interval", cmcInterval)
+                .queryParam("count", outputsize)
                 .toUriString();
-        
-        System.out.println("Fetching historical crypto data from CoinMarketCap for: " + symbol);
-        
-        HttpHeaders headers = new HttpHeaders();
-        headers.set("X-CMC_PRO_API_KEY", config.getApiKey());
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        
+
+        System.out.println("Fetching historical crypto data from CoinMarketCap for: " + base);
+        long bucket = Math.min(CandleStore.intervalSeconds(interval), 86400);
         try {
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            System.out.println("Historical crypto data response for " + symbol + ": " + response.getBody());
-            return response.getBody();
-        } catch (Exception e) {
-            System.err.println("Error fetching historical crypto data for " + symbol + ": " + e.getMessage());
-            throw e;
+            CandleSeries series = rateLimiter.call("coinmarketcap", requester, () -> restTemplate.execute(url, HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().set("X-CMC_PRO_API_KEY", config.getApiKey());
+                        request.getHeaders().set("Accept", "application/json");
+                    },
+                    response -> MarketDataParser.parseCoinMarketCapHistorical(symbol, interval, bucket, response.getBody())));
+            return series == null ? null : series.tail(outputsize);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == 429) {
+                throw e;
+            }
+            // historical quotes need a paid plan; that's an answer, not an outage
+            return CandleSeries.error(symbol, interval, "CoinMarketCap history unavailable: " + e.getStatusCode());
         }
     }
-}
\ No newline at end of file
+
+    private static String historicalInterval(String interval) {
+        return switch (interval) {
+            case "5min" -> "5m";
+            case "15min" -> "15m";
+            case "30min" -> "30m";
+            case "1h" -> "1h";
+            case "2h" -> "2h";
+            case "4h" -> "4h";
+            case "1day" -> "daily";
+            case "1week" -> "weekly";
+            case "1month" -> "monthly";
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.Quote;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects crypto quote requests for a short window and sends them to the crypto quote provider
+ * as one multi-symbol call, since CoinMarketCap bills the quotes endpoint per call rather than per symbol.
+ */
+@Component
+public class CryptoQuoteBatcher {
+
+    private final MarketDataProviders providers;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService callExecutor;
+
+    private final Object lock = new Object();
+    private Map<String, CompletableFuture<Quote>> pending = new LinkedHashMap<>();
+
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong batchedSymbols = new AtomicLong();
+
+    public CryptoQuoteBatcher(
+            MarketDataProviders providers,
+            @Value("${marketdata.crypto.batch-window-ms:20}") long windowMillis,
+            @Value("${marketdata.crypto.max-batch-size:100}") int maxBatchSize
+    ) {
+        this.providers = providers;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "crypto-batch-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.callExecutor = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "crypto-batch-call-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        callExecutor.shutdownNow();
+    }
+
+    /**
+     * Queues a bare crypto symbol (BTC, ETH) for the next batch. Requests for a symbol that is
+     * already queued share the same future.
+     */
+    public CompletableFuture<Quote> submit(String symbol) {
+        String key = symbol.trim().toUpperCase();
+        Map<String, CompletableFuture<Quote>> fullBatch = null;
+        CompletableFuture<Quote> future;
+
+        synchronized (lock) {
+            future = pending.get(key);
+            if (future != null) {
+                return future;
+            }
+
+            future = new CompletableFuture<>();
+            pending.put(key, future);
+
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = pending;
+                pending = new LinkedHashMap<>();
+            } else if (pending.size() == 1) {
+                scheduleFlush();
+            }
+        }
+
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+        return future;
+    }
+
+    public long getUpstreamCallCount() {
+        return upstreamCalls.get();
+    }
+
+    public long getBatchedSymbolCount() {
+        return batchedSymbols.get();
+    }
+
+    private void scheduleFlush() {
+        try {
+            scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        Map<String, CompletableFuture<Quote>> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        dispatch(batch);
+    }
+
+    private void dispatch(Map<String, CompletableFuture<Quote>> batch) {
+        try {
+            callExecutor.execute(() -> send(batch));
+        } catch (RejectedExecutionException e) {
+            batch.values().forEach(f -> f.completeExceptionally(e));
+        }
+    }
+
+    private void send(Map<String, CompletableFuture<Quote>> batch) {
+        upstreamCalls.incrementAndGet();
+        batchedSymbols.addAndGet(batch.size());
+
+        try {
+            Map<String, Quote> quotes = providers.cryptoQuotes(batch.keySet());
+            batch.forEach((symbol, future) -> {
+                Quote quote = quotes.get(symbol);
+                if (quote != null) {
+                    future.complete(quote);
+                } else {
+                    future.completeExceptionally(
+                            new IllegalArgumentException("No crypto quote returned for symbol: " + symbol));
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Crypto quote batch of " + batch.size() + " symbols failed: " + e.getMessage());
+            batch.values().forEach(f -> f.completeExceptionally(e));
+        }
+    }
+}
@@ -1,22 +1,49 @@
 package com.zipcode.invested.service;
 
 import com.zipcode.invested.config.FinnhubConfig;
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.MarketDataParser;
+import com.zipcode.invested.market.MarketDataProvider;
+import com.zipcode.invested.market.MarketDataType;
+import com.zipcode.invested.market.Quote;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Instant;
+import java.util.Set;
+
 @Service
-public class FinnhubService {
+public class FinnhubService implements MarketDataProvider {
     
     @Autowired
     private FinnhubConfig config;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    @Qualifier("finnhubRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProviderRateLimiter rateLimiter;
     
-    @Cacheable(value = "quotes", key = "#symbol", unless = "#result == null")
-    public String getQuote(String symbol) {
+    @Override
+    public String getName() {
+        return "finnhub";
+    }
+
+    @Override
+    public Set<MarketDataType> getSupportedTypes() {
+        return Set.of(MarketDataType.STOCK_QUOTE, MarketDataType.CANDLES);
+    }
+
+    // Quotes are cached by MarketDataService, which also handles refresh and coalescing
+    @Override
+    public Quote getQuote(String symbol) {
         String url = UriComponentsBuilder
             .fromUriString(config.getBaseUrl() + "/quote")
             .queryParam("symbol", symbol)
@@ -24,26 +51,8 @@ public class FinnhubService {
             .toUriString();
         
         System.out.println("Fetching quote from Finnhub API for: " + symbol); 
-        return restTemplate.getForObject(url, String.class);
-    }
-    
-    @Cacheable(value = "trending", unless = "#result == null")
-    public String getTrendingQuotes() {
-        System.out.println("Fetching trending quotes from Finnhub API"); 
-        
-        String[] symbols = {"AAPL", "NVDA", "TSLA", "MSFT", "META"};
-        StringBuilder result = new StringBuilder("[");
-        
-        for (int i = 0; i < symbols.length; i++) {
-            String quote = getQuote(symbols[i]);
-            result.append(quote);
-            if (i < symbols.length - 1) {
-                result.append(",");
-            }
-        }
-        result.append("]");
-        
-        return result.toString();
+        return rateLimiter.call("finnhub", () -> restTemplate.execute(url, HttpMethod.GET, null,
+                response -> MarketDataParser.parseFinnhubQuote(symbol, response.getBody())));
     }
     
     @Cacheable(value = "search", key = "#query", unless = "#result == null")
@@ -55,29 +64,56 @@ public class FinnhubService {
             .toUriString();
         
         System.out.println("Fetching search results from Finnhub API for: " + query); 
-        return restTemplate.getForObject(url, String.class);
+        return rateLimiter.call("finnhub", () -> restTemplate.getForObject(url, String.class));
     }
 
-        @Cacheable(value = "historical", key = "#symbol + '_' + #fromTimestamp + '_' + #toTimestamp", unless = "#result == null")
-    public String getHistoricalData(String symbol, long fromTimestamp, long toTimestamp) {
+    // Fallback candle source behind TwelveData; stock symbols only, crypto pairs are left to CoinMarketCap
+    @Override
+    public CandleSeries getHistoricalData(String symbol, String interval, int outputsize, String requester) {
+        String resolution = resolution(interval);
+        if (resolution == null || symbol.contains("/")) {
+            return CandleSeries.error(symbol, interval, "Finnhub has no " + interval + " candles for " + symbol);
+        }
+
+        // ask for enough calendar time to cover outputsize trading bars, then keep the newest ones
+        long step = CandleStore.intervalSeconds(interval);
+        long span = step < 86400 ? outputsize * step * 3 + 3 * 86400 : outputsize * step * 7 / 5 + 5 * 86400;
+        long to = Instant.now().getEpochSecond();
+
         String url = UriComponentsBuilder
                 .fromUriString(config.getBaseUrl() + "/stock/candle")
                 .queryParam("symbol", symbol)
-                .queryParam("resolution", "D")
-                .queryParam("from", fromTimestamp)
-                .queryParam("to", toTimestamp)
+                .queryParam("resolution", resolution)
+                .queryParam("from", to - span)
+                .queryParam("to", to)
                 .queryParam("token", config.getApiKey())
                 .toUriString();
-        
-        System.out.println("Fetching historical data from Finnhub API for: " + symbol);
-        
+
+        System.out.println("Fetching historical data from Finnhub for: " + symbol);
         try {
-            String response = restTemplate.getForObject(url, String.class);
-            System.out.println("Historical data response for " + symbol + ": " + response);
-            return response;
-        } catch (Exception e) {
-            System.err.println("Error fetching historical data for " + symbol + ": " + e.getMessage());
-            throw e;
+            CandleSeries series = rateLimiter.call("finnhub", requester, () -> restTemplate.execute(url, HttpMethod.GET, null,
+                    response -> MarketDataParser.parseFinnhubCandles(symbol, interval, response.getBody())));
+            return series == null ? null : series.tail(outputsize);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().value() == 429) {
+                throw e;
+            }
+            // candles need a paid plan; that's an answer, not an outage
+            return CandleSeries.error(symbol, interval, "Finnhub candles unavailable: " + e.getStatusCode());
         }
     }
-}
\ No newline at end of file
+
+    private static String resolution(String interval) {
+        return switch (interval) {
+            case "1min" -> "1";
+            case "5min" -> "5";
+            case "15min" -> "15";
+            case "30min" -> "30";
+            case "1h" -> "60";
+            case "1day" -> "D";
+            case "1week" -> "W";
+            case "1month" -> "M";
+            default -> null;
+        };
+    }
+}
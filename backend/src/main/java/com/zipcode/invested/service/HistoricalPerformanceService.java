@@ -0,0 +1,310 @@
+package com.zipcode.invested.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zipcode.invested.asset.Asset;
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.dto.UserHoldings;
+import com.zipcode.invested.user.User;
+import com.zipcode.invested.user.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Historical portfolio value curves per user, range and asset filter.
+ *
+ * Results are cached. An entry older than {@code performance.cache.refresh-after-ms} is still
+ * served while a background refresh recomputes it. A trade drops only the trading user's entries
+ * once it commits. Every computation is stamped when it starts, and a result is only stored if
+ * no newer computation has been stored for the key and the user hasn't traded since it started,
+ * so a slow refresh never replaces a fresher curve.
+ */
+@Service
+public class HistoricalPerformanceService {
+
+    private final UserRepository userRepository;
+    private final PortfolioService portfolioService;
+    private final HoldingsLedgerService holdingsLedgerService;
+    private final PortfolioValuationEngine valuationEngine;
+    private final long refreshAfterMillis;
+
+    private final Cache<Key, Entry> results;
+    private final Map<Long, AtomicLong> userGenerations = new ConcurrentHashMap<>();
+    private final AtomicLong stamps = new AtomicLong();
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refreshExecutor;
+
+    public HistoricalPerformanceService(
+            UserRepository userRepository,
+            PortfolioService portfolioService,
+            HoldingsLedgerService holdingsLedgerService,
+            PortfolioValuationEngine valuationEngine,
+            @Value("${performance.cache.refresh-after-ms:60000}") long refreshAfterMillis,
+            @Value("${performance.cache.expire-ms:1800000}") long expireMillis,
+            @Value("${performance.cache.max-entries:1000}") long maxEntries,
+            @Value("${performance.cache.refresh-threads:2}") int refreshThreads
+    ) {
+        this.userRepository = userRepository;
+        this.portfolioService = portfolioService;
+        this.holdingsLedgerService = holdingsLedgerService;
+        this.valuationEngine = valuationEngine;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(expireMillis, TimeUnit.MILLISECONDS)
+                .maximumSize(maxEntries)
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(Math.max(1, refreshThreads), runnable -> {
+            Thread thread = new Thread(runnable, "performance-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * A user's value curve for the range, from the cache when there is an entry.
+     */
+    public Performance get(User user, String range, String assetFilter) {
+        Key key = new Key(user.getId(), range.toUpperCase(), assetFilter.toLowerCase());
+        Entry entry = results.getIfPresent(key);
+        if (entry == null) {
+            return compute(key, user);
+        }
+        if (System.currentTimeMillis() - entry.computedAt > refreshAfterMillis && refreshing.add(key)) {
+            refreshExecutor.execute(() -> {
+                try {
+                    userRepository.findById(key.userId).ifPresent(u -> compute(key, u));
+                } catch (Exception e) {
+                    System.err.println("Background refresh of historical performance failed for user "
+                            + key.userId + ": " + e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        }
+        return entry.performance;
+    }
+
+    // Runs after the trade commits, so a refresh started after this sees the new holdings
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        invalidateUser(event.getUserId());
+    }
+
+    public void invalidateUser(Long userId) {
+        // bump first: a computation already running for this user will then see it and not store
+        generation(userId).incrementAndGet();
+        results.asMap().keySet().removeIf(key -> key.userId.equals(userId));
+    }
+
+    private Performance compute(Key key, User user) {
+        long generation = generation(key.userId).get();
+        long stamp = stamps.incrementAndGet();
+
+        Performance performance = build(user, key.range, key.assetFilter);
+
+        results.asMap().compute(key, (k, existing) -> {
+            if (generation(key.userId).get() != generation) return existing;
+            if (existing != null && existing.stamp > stamp) return existing;
+            return new Entry(performance, stamp, System.currentTimeMillis());
+        });
+        return performance;
+    }
+
+    private AtomicLong generation(Long userId) {
+        return userGenerations.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+
+    private Performance build(User user, String range, String assetFilter) {
+        long endTimestamp = System.currentTimeMillis() / 1000;
+        long startTimestamp;
+        int dataPoints;
+
+        switch (range) {
+            case "1D":
+                startTimestamp = endTimestamp - (24 * 60 * 60);
+                dataPoints = 24;
+                break;
+            case "1W":
+                startTimestamp = endTimestamp - (7 * 24 * 60 * 60); // 1 week ago
+                dataPoints = 7; // Daily for 1 week
+                break;
+            case "1M":
+                startTimestamp = endTimestamp - (30 * 24 * 60 * 60); // 1 month ago
+                dataPoints = 30; // Daily for 1 month
+                break;
+            case "3M":
+                startTimestamp = endTimestamp - (90 * 24 * 60 * 60); // 3 months ago
+                dataPoints = 90; // Daily for 3 months
+                break;
+            case "1Y":
+                startTimestamp = endTimestamp - (365 * 24 * 60 * 60); // 1 year ago
+                dataPoints = 365; // Daily for 1 year
+                break;
+            default:
+                startTimestamp = endTimestamp - (30 * 24 * 60 * 60);
+                dataPoints = 30;
+        }
+
+        // Rebuild holdings over the range from the user's transactions
+        UserHoldings holdings = portfolioService.findHoldingsByUser(user);
+        BigDecimal totalCash = holdings.getTotalCash();
+
+        Predicate<Asset> filter = asset -> {
+            String assetType = asset.getAssetType();
+            if ("stocks".equals(assetFilter)) {
+                return "STOCK".equalsIgnoreCase(assetType);
+            } else if ("crypto".equals(assetFilter)) {
+                return "CRYPTO".equalsIgnoreCase(assetType);
+            }
+            return true;
+        };
+        HoldingsLedgerService.Timeline timeline = holdingsLedgerService.timeline(
+                holdings, Instant.ofEpochSecond(startTimestamp), filter);
+
+        if (timeline.getSymbols().isEmpty()) {
+            // Flat line at current cash balance if nothing was held over the range
+            long[] timestamps = new long[dataPoints];
+            double[] values = new double[dataPoints];
+            long timeStep = (endTimestamp - startTimestamp) / dataPoints;
+            for (int i = 0; i < dataPoints; i++) {
+                timestamps[i] = startTimestamp + (i * timeStep);
+                values[i] = totalCash.doubleValue();
+            }
+            return new Performance(range, timestamps, values, Map.of());
+        }
+
+        // Determine interval and outputsize based on range
+        String interval;
+        int outputsize;
+
+        switch (range) {
+            case "1D":
+            case "LIVE":
+                interval = "1h";
+                outputsize = 24;
+                break;
+            case "1W":
+                interval = "1day";
+                outputsize = 7;
+                break;
+            case "1M":
+                interval = "1day";
+                outputsize = 30;
+                break;
+            case "3M":
+                interval = "1day";
+                outputsize = 90;
+                break;
+            case "1Y":
+            case "ALL":
+                interval = "1day";
+                outputsize = 365;
+                break;
+            default:
+                interval = "1day";
+                outputsize = 30;
+        }
+
+        // Every symbol held over the range is valued from its own history; bars come from the local
+        // candle store and only missing ones go to TwelveData through the shared rate limiter
+        List<String> symbols = timeline.getSymbols();
+        Map<String, CandleSeries> series = valuationEngine.loadSeries(symbols, interval, outputsize, "user-" + user.getId());
+        PortfolioValuationEngine.Curve curve = valuationEngine.value(timeline, series, interval, startTimestamp);
+
+        System.out.println("Valued " + symbols.size() + " symbols (" + series.size() + " with history) over " + curve.size() + " points");
+
+        // which provider served each symbol's bars; symbols without history were valued at last traded price
+        Map<String, String> sources = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            CandleSeries bars = series.get(symbol);
+            sources.put(symbol, bars == null ? "last-trade" : bars.getSource());
+        }
+
+        return new Performance(range, curve.getTimestamps(), curve.getValues(), sources);
+    }
+
+    /**
+     * Portfolio value per timestamp (epoch seconds), oldest first. Shared between callers, so
+     * the arrays must not be modified.
+     */
+    public static final class Performance {
+        private final String range;
+        private final long[] timestamps;
+        private final double[] values;
+        private final Map<String, String> sources;
+
+        Performance(String range, long[] timestamps, double[] values, Map<String, String> sources) {
+            this.range = range;
+            this.timestamps = timestamps;
+            this.values = values;
+            this.sources = sources;
+        }
+
+        public String getRange() { return range; }
+        public long[] getTimestamps() { return timestamps; }
+        public double[] getValues() { return values; }
+        public Map<String, String> getSources() { return sources; }
+    }
+
+    private static final class Entry {
+        final Performance performance;
+        final long stamp;
+        final long computedAt;
+
+        Entry(Performance performance, long stamp, long computedAt) {
+            this.performance = performance;
+            this.stamp = stamp;
+            this.computedAt = computedAt;
+        }
+    }
+
+    private static final class Key {
+        final Long userId;
+        final String range;
+        final String assetFilter;
+
+        Key(Long userId, String range, String assetFilter) {
+            this.userId = userId;
+            this.range = range;
+            this.assetFilter = assetFilter;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return userId.equals(other.userId) && range.equals(other.range) && assetFilter.equals(other.assetFilter);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, range, assetFilter);
+        }
+    }
+}
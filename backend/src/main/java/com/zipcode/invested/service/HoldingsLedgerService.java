@@ -0,0 +1,442 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.asset.Asset;
+import com.zipcode.invested.asset.AssetRepository;
+import com.zipcode.invested.dto.UserHoldings;
+import com.zipcode.invested.holdings.HoldingsCheckpoint;
+import com.zipcode.invested.holdings.HoldingsCheckpointRepository;
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.portfolio.PortfolioRepository;
+import com.zipcode.invested.position.PortfolioPosition;
+import com.zipcode.invested.position.PortfolioPositionRepository;
+import com.zipcode.invested.transaction.Transaction;
+import com.zipcode.invested.transaction.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Rebuilds what a portfolio held at any point in time by replaying its transactions.
+ *
+ * Positions that were created without a transaction (seed data, manual edits) are treated as an
+ * opening balance: current quantity minus the net of all transactions. Cash works the same way.
+ * The opening balance is worked out once, from one consistent read, and saved as checkpoint 0.
+ * Every {@code holdings.checkpoint-interval} transactions after that the absolute holdings are
+ * saved as another {@link HoldingsCheckpoint}, so a query reads the nearest checkpoint and
+ * replays only the transactions since. Checkpoints assume transactions are appended in date
+ * order, as PortfolioService does. A manual position edit changes the opening balance, so it
+ * drops the portfolio's checkpoints ({@link #invalidate}).
+ */
+@Service
+public class HoldingsLedgerService {
+
+    private final TransactionRepository transactionRepository;
+    private final HoldingsCheckpointRepository checkpointRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioPositionRepository positionRepository;
+    private final AssetRepository assetRepository;
+    private final TransactionTemplate snapshotRead;
+    private final int checkpointInterval;
+
+    public HoldingsLedgerService(TransactionRepository transactionRepository,
+                                 HoldingsCheckpointRepository checkpointRepository,
+                                 PortfolioRepository portfolioRepository,
+                                 PortfolioPositionRepository positionRepository,
+                                 AssetRepository assetRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${holdings.checkpoint-interval:50}") int checkpointInterval) {
+        this.transactionRepository = transactionRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.positionRepository = positionRepository;
+        this.assetRepository = assetRepository;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+
+        // the opening balance compares cash, positions and the transaction totals, so all three
+        // must come from the same snapshot; a fresh transaction also skips any cached entities
+        this.snapshotRead = new TransactionTemplate(transactionManager);
+        this.snapshotRead.setReadOnly(true);
+        this.snapshotRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotRead.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * One asset's quantity and the price it last traded at (used to value it when no market
+     * price is available).
+     */
+    public static final class Lot {
+        private final Asset asset;
+        private BigDecimal quantity;
+        private BigDecimal lastPrice;
+
+        Lot(Asset asset, BigDecimal quantity, BigDecimal lastPrice) {
+            this.asset = asset;
+            this.quantity = quantity;
+            this.lastPrice = lastPrice;
+        }
+
+        public Asset getAsset() { return asset; }
+        public BigDecimal getQuantity() { return quantity; }
+        public BigDecimal getLastPrice() { return lastPrice; }
+    }
+
+    /**
+     * Holdings and cash at a point in time, keyed by asset id.
+     */
+    public static final class State {
+        private final Map<Long, Lot> lots = new LinkedHashMap<>();
+        private BigDecimal cash = BigDecimal.ZERO;
+
+        public Map<Long, Lot> getLots() { return lots; }
+        public BigDecimal getCash() { return cash; }
+
+        void apply(Transaction transaction) {
+            BigDecimal signed = isBuy(transaction) ? transaction.getQuantity() : transaction.getQuantity().negate();
+            BigDecimal cashDelta = isBuy(transaction) ? transaction.getTotalAmount().negate() : transaction.getTotalAmount();
+
+            Lot lot = lots.get(transaction.getAsset().getId());
+            if (lot == null) {
+                lots.put(transaction.getAsset().getId(),
+                        new Lot(transaction.getAsset(), signed, transaction.getPriceAtTransaction()));
+            } else {
+                lot.quantity = lot.quantity.add(signed);
+                lot.lastPrice = transaction.getPriceAtTransaction();
+            }
+            cash = cash.add(cashDelta);
+        }
+
+        void add(State other) {
+            for (Lot lot : other.lots.values()) {
+                Lot mine = lots.get(lot.asset.getId());
+                if (mine == null) {
+                    lots.put(lot.asset.getId(), new Lot(lot.asset, lot.quantity, lot.lastPrice));
+                } else {
+                    mine.quantity = mine.quantity.add(lot.quantity);
+                    if (lot.lastPrice != null) {
+                        mine.lastPrice = lot.lastPrice;
+                    }
+                }
+            }
+            cash = cash.add(other.cash);
+        }
+
+        void dropEmpty() {
+            lots.values().removeIf(lot -> lot.quantity.signum() == 0);
+        }
+    }
+
+    /**
+     * Holdings at {@code asOf}, with empty lots removed.
+     */
+    public State getHoldingsAsOf(Portfolio portfolio, Instant asOf) {
+        State state = replay(portfolio, asOf, asOf).start;
+        state.dropEmpty();
+        return state;
+    }
+
+    /**
+     * Holdings of several portfolios from {@code from} until now: the combined state at {@code from}
+     * plus every transaction after it. Assets not matching the filter are ignored; cash is not.
+     */
+    public Timeline timeline(List<Portfolio> portfolios, Instant from, Predicate<Asset> assetFilter) {
+        State start = new State();
+        List<Transaction> events = new ArrayList<>();
+        Instant now = Instant.now();
+
+        for (Portfolio portfolio : portfolios) {
+            Replay replay = replay(portfolio, from, now);
+            start.add(replay.start);
+            events.addAll(replay.after);
+        }
+
+        start.lots.values().removeIf(lot -> !assetFilter.test(lot.asset));
+        start.dropEmpty();
+        events.sort(Comparator.comparing(Transaction::getTransactionDate).thenComparing(Transaction::getId));
+        return new Timeline(start, events, assetFilter);
+    }
+
+    /**
+     * As {@link #timeline(List, Instant, Predicate)}, for the portfolios in {@code holdings}.
+     */
+    public Timeline timeline(UserHoldings holdings, Instant from, Predicate<Asset> assetFilter) {
+        return timeline(holdings.getPortfolios(), from, assetFilter);
+    }
+
+    /**
+     * Drops the portfolio's checkpoints. Call after changing its positions or cash outside a
+     * transaction; the opening balance is recomputed on the next query.
+     */
+    public void invalidate(Portfolio portfolio) {
+        int deleted = checkpointRepository.deleteByPortfolio(portfolio);
+        if (deleted > 0) {
+            System.out.println("Dropped " + deleted + " holdings checkpoints for portfolio " + portfolio.getId());
+        }
+    }
+
+    /**
+     * A starting state plus the transactions that follow it, sampled onto a time axis for charting.
+     */
+    public static final class Timeline {
+        private final State start;
+        private final List<Transaction> events;
+        private final Predicate<Asset> assetFilter;
+
+        Timeline(State start, List<Transaction> events, Predicate<Asset> assetFilter) {
+            this.start = start;
+            this.events = events;
+            this.assetFilter = assetFilter;
+        }
+
+        /**
+         * Symbols held at the start or traded afterwards.
+         */
+        public List<String> getSymbols() {
+            Map<String, Boolean> symbols = new LinkedHashMap<>();
+            start.lots.values().forEach(lot -> symbols.put(lot.asset.getSymbol(), true));
+            for (Transaction transaction : events) {
+                if (assetFilter.test(transaction.getAsset())) {
+                    symbols.put(transaction.getAsset().getSymbol(), true);
+                }
+            }
+            return new ArrayList<>(symbols.keySet());
+        }
+
+        /**
+         * Quantity, last traded price and cash at each axis timestamp (epoch seconds, ascending),
+         * with every transaction up to and including that second applied.
+         */
+        public Sampled sample(List<String> symbols, long[] axis) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int s = 0; s < symbols.size(); s++) {
+                index.put(symbols.get(s), s);
+            }
+
+            double[] quantity = new double[symbols.size()];
+            double[] lastPrice = new double[symbols.size()];
+            for (Lot lot : start.lots.values()) {
+                Integer s = index.get(lot.asset.getSymbol());
+                if (s == null) continue;
+                quantity[s] += lot.quantity.doubleValue();
+                if (lot.lastPrice != null) lastPrice[s] = lot.lastPrice.doubleValue();
+            }
+            double cash = start.cash.doubleValue();
+
+            double[][] quantities = new double[symbols.size()][axis.length];
+            double[][] prices = new double[symbols.size()][axis.length];
+            double[] cashColumn = new double[axis.length];
+
+            int next = 0;
+            for (int i = 0; i < axis.length; i++) {
+                while (next < events.size() && events.get(next).getTransactionDate().getEpochSecond() <= axis[i]) {
+                    Transaction transaction = events.get(next++);
+                    boolean buy = isBuy(transaction);
+                    cash += (buy ? -1 : 1) * transaction.getTotalAmount().doubleValue();
+
+                    Integer s = index.get(transaction.getAsset().getSymbol());
+                    if (s != null && assetFilter.test(transaction.getAsset())) {
+                        quantity[s] += (buy ? 1 : -1) * transaction.getQuantity().doubleValue();
+                        lastPrice[s] = transaction.getPriceAtTransaction().doubleValue();
+                    }
+                }
+                for (int s = 0; s < quantity.length; s++) {
+                    quantities[s][i] = quantity[s];
+                    prices[s][i] = lastPrice[s];
+                }
+                cashColumn[i] = cash;
+            }
+
+            return new Sampled(quantities, prices, cashColumn);
+        }
+    }
+
+    /**
+     * Per-symbol quantity and last traded price columns plus a cash column, all on the same axis.
+     */
+    public static final class Sampled {
+        private final double[][] quantities;
+        private final double[][] lastPrices;
+        private final double[] cash;
+
+        Sampled(double[][] quantities, double[][] lastPrices, double[] cash) {
+            this.quantities = quantities;
+            this.lastPrices = lastPrices;
+            this.cash = cash;
+        }
+
+        public double[] getQuantities(int symbol) { return quantities[symbol]; }
+        public double[] getLastPrices(int symbol) { return lastPrices[symbol]; }
+        public double[] getCash() { return cash; }
+    }
+
+    private static final class Replay {
+        final State start;
+        final List<Transaction> after;
+
+        Replay(State start, List<Transaction> after) {
+            this.start = start;
+            this.after = after;
+        }
+    }
+
+    /**
+     * Replays from the nearest checkpoint: everything up to {@code splitAt} is folded into its
+     * state, the rest up to {@code until} is returned as-is. Checkpoints are saved for every
+     * interval boundary crossed on the way, and checkpoint 0 when the portfolio has none yet.
+     */
+    private Replay replay(Portfolio portfolio, Instant splitAt, Instant until) {
+        List<HoldingsCheckpoint> newCheckpoints = new ArrayList<>();
+
+        // checkpoint 0 is dated at the epoch, so any portfolio that has checkpoints finds one here
+        HoldingsCheckpoint checkpoint = checkpointRepository
+                .findFirstByPortfolioAndAsOfLessThanEqualOrderByTransactionCountDesc(portfolio, splitAt)
+                .orElse(null);
+        State state;
+        if (checkpoint == null) {
+            state = opening(portfolio);
+            checkpoint = new HoldingsCheckpoint(portfolio, Instant.EPOCH, 0L, 0, state.cash, encode(state));
+            newCheckpoints.add(checkpoint);
+        } else {
+            state = decode(checkpoint);
+        }
+        int count = checkpoint.getTransactionCount();
+        List<Transaction> transactions = transactionRepository.findForReplay(
+                portfolio, checkpoint.getAsOf(), checkpoint.getLastTransactionId(), until);
+        List<Transaction> after = new ArrayList<>();
+
+        // the checkpoint chain is built from the full replay, so keep counting past splitAt
+        State running = copy(state);
+        for (Transaction transaction : transactions) {
+            running.apply(transaction);
+            count++;
+
+            if (!transaction.getTransactionDate().isAfter(splitAt)) {
+                state.apply(transaction);
+            } else {
+                after.add(transaction);
+            }
+
+            if (count % checkpointInterval == 0) {
+                newCheckpoints.add(new HoldingsCheckpoint(portfolio, transaction.getTransactionDate(),
+                        transaction.getId(), count, running.cash, encode(running)));
+            }
+        }
+
+        saveCheckpoints(portfolio, newCheckpoints);
+        return new Replay(state, after);
+    }
+
+    private void saveCheckpoints(Portfolio portfolio, List<HoldingsCheckpoint> checkpoints) {
+        for (HoldingsCheckpoint checkpoint : checkpoints) {
+            try {
+                if (!checkpointRepository.existsByPortfolioAndTransactionCount(portfolio, checkpoint.getTransactionCount())) {
+                    checkpointRepository.save(checkpoint);
+                }
+            } catch (Exception e) {
+                // another request saved the same checkpoint first; nothing to do
+                System.err.println("Skipping holdings checkpoint " + checkpoint.getTransactionCount()
+                        + " for portfolio " + portfolio.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Current positions and cash minus the net effect of every transaction, all read in one
+     * repeatable-read transaction so a trade committing meanwhile can't skew the difference.
+     */
+    private State opening(Portfolio portfolio) {
+        return snapshotRead.execute(status -> {
+            BigDecimal cash = portfolioRepository.findById(portfolio.getId())
+                    .map(Portfolio::getCashBalance)
+                    .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
+            return opening(cash, positionRepository.findByPortfolioWithAsset(portfolio),
+                    transactionRepository.sumByAsset(portfolio));
+        });
+    }
+
+    private State opening(BigDecimal cash, List<PortfolioPosition> positions, List<Object[]> transactionTotals) {
+        Map<Long, BigDecimal> netQuantity = new HashMap<>();
+        BigDecimal netCash = BigDecimal.ZERO;
+        for (Object[] row : transactionTotals) {
+            netQuantity.put((Long) row[0], (BigDecimal) row[1]);
+            netCash = netCash.add((BigDecimal) row[2]);
+        }
+
+        State state = new State();
+        state.cash = cash.subtract(netCash);
+
+        for (PortfolioPosition position : positions) {
+            Long assetId = position.getAsset().getId();
+            BigDecimal opening = position.getQuantity().subtract(netQuantity.getOrDefault(assetId, BigDecimal.ZERO));
+            netQuantity.remove(assetId);
+            if (opening.signum() != 0) {
+                state.lots.put(assetId, new Lot(position.getAsset(), opening, position.getAverageBuyPrice()));
+            }
+        }
+
+        // assets fully sold since: whatever the transactions took out must have been there at the start
+        List<Long> closed = new ArrayList<>();
+        netQuantity.forEach((assetId, net) -> {
+            if (net.signum() != 0) closed.add(assetId);
+        });
+        for (Asset asset : assetRepository.findAllById(closed)) {
+            state.lots.put(asset.getId(), new Lot(asset, netQuantity.get(asset.getId()).negate(), null));
+        }
+
+        return state;
+    }
+
+    private State copy(State state) {
+        State copy = new State();
+        copy.add(state);
+        return copy;
+    }
+
+    private String encode(State state) {
+        StringBuilder data = new StringBuilder();
+        for (Map.Entry<Long, Lot> entry : state.lots.entrySet()) {
+            if (data.length() > 0) data.append(';');
+            Lot lot = entry.getValue();
+            data.append(entry.getKey()).append('=').append(lot.quantity.toPlainString())
+                    .append('@').append(lot.lastPrice == null ? "" : lot.lastPrice.toPlainString());
+        }
+        return data.toString();
+    }
+
+    private State decode(HoldingsCheckpoint checkpoint) {
+        Map<Long, String[]> entries = new LinkedHashMap<>();
+        String data = checkpoint.getHoldingsData();
+        if (!data.isEmpty()) {
+            for (String entry : data.split(";")) {
+                int eq = entry.indexOf('=');
+                int at = entry.indexOf('@');
+                entries.put(Long.parseLong(entry.substring(0, eq)),
+                        new String[]{entry.substring(eq + 1, at), entry.substring(at + 1)});
+            }
+        }
+
+        State state = new State();
+        state.cash = checkpoint.getCash();
+        for (Asset asset : assetRepository.findAllById(entries.keySet())) {
+            String[] values = entries.get(asset.getId());
+            state.lots.put(asset.getId(), new Lot(asset, new BigDecimal(values[0]),
+                    values[1].isEmpty() ? null : new BigDecimal(values[1])));
+        }
+        return state;
+    }
+
+    private static boolean isBuy(Transaction transaction) {
+        return "BUY".equalsIgnoreCase(transaction.getTransactionType());
+    }
+}
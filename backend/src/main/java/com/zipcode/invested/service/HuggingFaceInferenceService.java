@@ -1,8 +1,10 @@
 package com.zipcode.invested.service;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
@@ -39,9 +41,11 @@ public class HuggingFaceInferenceService {
 
     public HuggingFaceInferenceService(
             @Value("${hf.apiKey}") String apiKey,
-            @Value("${hf.model}") String model
+            @Value("${hf.model}") String model,
+            @Qualifier("huggingFaceRequestFactory") ClientHttpRequestFactory requestFactory
     ) {
         this.client = RestClient.builder()
+                .requestFactory(requestFactory)
                 .baseUrl("https://router.huggingface.co/v1")
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
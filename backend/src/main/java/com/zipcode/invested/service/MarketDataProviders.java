@@ -0,0 +1,252 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.CircuitBreaker;
+import com.zipcode.invested.market.MarketDataProvider;
+import com.zipcode.invested.market.MarketDataType;
+import com.zipcode.invested.market.Quote;
+import com.zipcode.invested.market.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Routes each kind of market data through an ordered fallback chain of {@link MarketDataProvider}s.
+ * {@code marketdata.providers} lists the enabled providers; the chain for a type follows
+ * {@code marketdata.chain.<type>} and then any other enabled provider serving it. Each provider
+ * has its own {@link CircuitBreaker}: a provider whose circuit is open is skipped without a
+ * network call, and the next one in the chain is tried.
+ *
+ * Results are labelled with the provider that served them ({@link Quote#getSource()},
+ * {@link CandleSeries#getSource()}). A provider that answers but has no usable data for the symbol
+ * (an error series, a zero price) falls through to the next provider without counting against
+ * its circuit; only exceptions do. A provider whose own rate limit is exhausted
+ * ({@link RateLimitExceededException}) is skipped without counting against its circuit either.
+ * The replay profile swaps the list for the file-backed provider.
+ */
+@Component
+public class MarketDataProviders {
+
+    private final Map<MarketDataType, List<MarketDataProvider>> chains = new EnumMap<>(MarketDataType.class);
+    private final Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+
+    public MarketDataProviders(
+            List<MarketDataProvider> available,
+            @Value("${marketdata.providers:finnhub,coinmarketcap,twelvedata}") String enabled,
+            @Value("${marketdata.chain.stock-quote:finnhub,twelvedata}") String stockQuoteChain,
+            @Value("${marketdata.chain.crypto-quote:coinmarketcap}") String cryptoQuoteChain,
+            @Value("${marketdata.chain.candles:twelvedata,finnhub,coinmarketcap}") String candleChain,
+            @Value("${marketdata.breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${marketdata.breaker.open-ms:30000}") long openMillis
+    ) {
+        Map<String, MarketDataProvider> byName = new HashMap<>();
+        for (MarketDataProvider provider : available) {
+            byName.put(provider.getName(), provider);
+        }
+
+        List<MarketDataProvider> ordered = resolve(enabled, byName);
+        for (MarketDataProvider provider : ordered) {
+            breakers.put(provider.getName(), new CircuitBreaker(provider.getName(), failureThreshold, openMillis));
+        }
+
+        Map<MarketDataType, String> preferred = new EnumMap<>(MarketDataType.class);
+        preferred.put(MarketDataType.STOCK_QUOTE, stockQuoteChain);
+        preferred.put(MarketDataType.CRYPTO_QUOTE, cryptoQuoteChain);
+        preferred.put(MarketDataType.CANDLES, candleChain);
+
+        // the preferred order first, then any other enabled provider that serves the type
+        for (MarketDataType type : MarketDataType.values()) {
+            List<MarketDataProvider> chain = new ArrayList<>();
+            for (MarketDataProvider provider : resolve(preferred.getOrDefault(type, ""), byName)) {
+                if (ordered.contains(provider) && provider.supports(type)) {
+                    chain.add(provider);
+                }
+            }
+            for (MarketDataProvider provider : ordered) {
+                if (provider.supports(type) && !chain.contains(provider)) {
+                    chain.add(provider);
+                }
+            }
+            chains.put(type, chain);
+        }
+
+        System.out.println("Market data providers: " + describe());
+    }
+
+    /**
+     * Latest quote for a stock symbol from the first provider in the chain that has a price for it.
+     */
+    public Quote quote(String symbol) {
+        return call(MarketDataType.STOCK_QUOTE, symbol,
+                provider -> provider.getQuote(symbol),
+                quote -> quote != null && quote.hasPrice(),
+                Quote::withSource);
+    }
+
+    /**
+     * Latest quotes for bare crypto symbols. Symbols the first provider doesn't return are asked of
+     * the next one.
+     */
+    public Map<String, Quote> cryptoQuotes(Collection<String> symbols) {
+        Map<String, Quote> quotes = new HashMap<>();
+        List<String> missing = new ArrayList<>(symbols);
+        RuntimeException lastError = null;
+        boolean attempted = false;
+
+        for (MarketDataProvider provider : chain(MarketDataType.CRYPTO_QUOTE)) {
+            if (missing.isEmpty()) break;
+            CircuitBreaker breaker = breakers.get(provider.getName());
+            if (!breaker.tryAcquire()) continue;
+            attempted = true;
+
+            Map<String, Quote> served;
+            try {
+                served = provider.getCryptoQuotes(missing);
+                breaker.recordSuccess();
+            } catch (RateLimitExceededException e) {
+                breaker.release();
+                lastError = e;
+                continue;
+            } catch (RuntimeException e) {
+                breaker.recordFailure();
+                lastError = e;
+                continue;
+            }
+            served.forEach((symbol, quote) -> quotes.put(symbol, quote.withSource(provider.getName())));
+            missing.removeIf(s -> quotes.containsKey(s.toUpperCase()));
+        }
+
+        if (quotes.isEmpty() && lastError != null) {
+            throw lastError;
+        }
+        if (!attempted) {
+            throw unavailable(MarketDataType.CRYPTO_QUOTE);
+        }
+        return quotes;
+    }
+
+    /**
+     * Up to {@code outputsize} bars from the first provider in the chain that has them. If none
+     * does, the last provider's error series is returned.
+     */
+    public CandleSeries candles(String symbol, String interval, int outputsize, String requester) {
+        return call(MarketDataType.CANDLES, symbol,
+                provider -> provider.getHistoricalData(symbol, interval, outputsize, requester),
+                series -> series != null && !series.isError() && !series.isEmpty(),
+                CandleSeries::withSource);
+    }
+
+    public Map<MarketDataType, List<String>> describe() {
+        Map<MarketDataType, List<String>> names = new EnumMap<>(MarketDataType.class);
+        chains.forEach((type, chain) -> names.put(type, chain.stream().map(MarketDataProvider::getName).toList()));
+        return names;
+    }
+
+    /**
+     * Circuit state per provider, for the status endpoint.
+     */
+    public Map<String, Map<String, Object>> getBreakerStatus() {
+        Map<String, Map<String, Object>> status = new LinkedHashMap<>();
+        breakers.forEach((name, breaker) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("state", breaker.getState());
+            entry.put("consecutiveFailures", breaker.getConsecutiveFailures());
+            entry.put("rejected", breaker.getRejectedCount());
+            status.put(name, entry);
+        });
+        return status;
+    }
+
+    private <T> T call(MarketDataType type, String symbol,
+                       Function<MarketDataProvider, T> fetch,
+                       Predicate<T> usable,
+                       Labeller<T> label) {
+        T fallback = null;
+        RuntimeException lastError = null;
+        boolean attempted = false;
+
+        for (MarketDataProvider provider : chain(type)) {
+            CircuitBreaker breaker = breakers.get(provider.getName());
+            if (!breaker.tryAcquire()) continue;
+            attempted = true;
+
+            T result;
+            try {
+                result = fetch.apply(provider);
+                breaker.recordSuccess();
+            } catch (RateLimitExceededException e) {
+                breaker.release();
+                System.err.println(provider.getName() + " skipped for " + type + " " + symbol + ": " + e.getMessage());
+                lastError = e;
+                continue;
+            } catch (RuntimeException e) {
+                breaker.recordFailure();
+                System.err.println(provider.getName() + " failed for " + type + " " + symbol + ": " + e.getMessage());
+                lastError = e;
+                continue;
+            }
+
+            if (result != null) {
+                result = label.apply(result, provider.getName());
+            }
+            if (usable.test(result)) {
+                return result;
+            }
+            fallback = result;
+        }
+
+        if (fallback != null) {
+            return fallback;
+        }
+        if (lastError != null) {
+            throw lastError;
+        }
+        if (!attempted) {
+            throw unavailable(type);
+        }
+        return null;
+    }
+
+    private static List<MarketDataProvider> resolve(String names, Map<String, MarketDataProvider> byName) {
+        List<MarketDataProvider> providers = new ArrayList<>();
+        for (String name : names.split(",")) {
+            String trimmed = name.trim().toLowerCase();
+            if (trimmed.isEmpty()) continue;
+
+            MarketDataProvider provider = byName.get(trimmed);
+            if (provider == null) {
+                throw new IllegalArgumentException("Unknown market data provider '" + trimmed
+                        + "'; available: " + byName.keySet());
+            }
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    private List<MarketDataProvider> chain(MarketDataType type) {
+        List<MarketDataProvider> chain = chains.get(type);
+        if (chain == null || chain.isEmpty()) {
+            throw new IllegalStateException("No market data provider configured for " + type);
+        }
+        return chain;
+    }
+
+    private IllegalStateException unavailable(MarketDataType type) {
+        return new IllegalStateException("All " + type + " providers are unavailable (circuit open): "
+                + describe().get(type));
+    }
+
+    @FunctionalInterface
+    private interface Labeller<T> {
+        T apply(T value, String source);
+    }
+}
@@ -1,89 +1,322 @@
 package com.zipcode.invested.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zipcode.invested.market.Quote;
+import com.zipcode.invested.market.RateLimitExceededException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class MarketDataService {
 
-    private final FinnhubService finnhubService;
-    private final CoinMarketCapService coinMarketCapService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MarketDataProviders providers;
+    private final CryptoQuoteBatcher cryptoQuoteBatcher;
 
-    private static final long CACHE_TTL_SECONDS = 30;
+    private static class CachedQuote {
+        final Quote quote;
+        final BigDecimal price; // null when the provider didn't return a usable price
+        final Instant fetchedAt;
 
-    private static class CachedPrice {
-        final BigDecimal price;
-        final Instant expiresAt;
-
-        CachedPrice(BigDecimal price, Instant expiresAt) {
-            this.price = price;
-            this.expiresAt = expiresAt;
+        CachedQuote(Quote quote) {
+            this.quote = quote;
+            this.price = quote.hasPrice() ? BigDecimal.valueOf(quote.getCurrent()) : null;
+            this.fetchedAt = Instant.now();
         }
     }
 
-    private final ConcurrentHashMap<String, CachedPrice> priceCache = new ConcurrentHashMap<>();
+    // Entries past the soft TTL are still served but trigger a background refresh;
+    // entries past the hard TTL are evicted and have to be fetched again before use.
+    private final Cache<String, CachedQuote> quoteCache;
+    private final Duration softTtl;
+
+    // One upstream fetch per symbol at a time; concurrent misses wait on the leader's result
+    private final ConcurrentHashMap<String, CompletableFuture<CachedQuote>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong leaderRequests = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+
+    // Stock fetches run here so bulk lookups and refreshes don't pay one round trip per holding;
+    // crypto fetches go through the batcher instead
+    private final ExecutorService fetchExecutor;
+    private final long bulkTimeoutMillis;
 
-    public MarketDataService(FinnhubService finnhubService, CoinMarketCapService coinMarketCapService) {
-        this.finnhubService = finnhubService;
-        this.coinMarketCapService = coinMarketCapService;
+    public MarketDataService(
+            MarketDataProviders providers,
+            CryptoQuoteBatcher cryptoQuoteBatcher,
+            @Value("${marketdata.bulk.threads:16}") int bulkThreads,
+            @Value("${marketdata.bulk.timeout-ms:5000}") long bulkTimeoutMillis,
+            @Value("${marketdata.cache.soft-ttl-seconds:30}") long softTtlSeconds,
+            @Value("${marketdata.cache.hard-ttl-seconds:300}") long hardTtlSeconds,
+            @Value("${marketdata.cache.max-size:5000}") long maxSize
+    ) {
+        this.providers = providers;
+        this.cryptoQuoteBatcher = cryptoQuoteBatcher;
+        this.bulkTimeoutMillis = bulkTimeoutMillis;
+        this.softTtl = Duration.ofSeconds(softTtlSeconds);
+        this.quoteCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(Math.max(softTtlSeconds, hardTtlSeconds)))
+                .maximumSize(maxSize)
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fetchExecutor = Executors.newFixedThreadPool(Math.max(1, bulkThreads), runnable -> {
+            Thread thread = new Thread(runnable, "market-data-fetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
     }
 
-   
     public BigDecimal getCurrentPrice(String symbol) {
         if (symbol == null || symbol.isBlank()) {
             throw new IllegalArgumentException("symbol is required");
         }
 
-        String normalized = symbol.trim();
-        String cacheKey = normalized.toUpperCase();
+        String cacheKey = symbol.trim().toUpperCase();
+        return requirePrice(getQuoteEntry(cacheKey), cacheKey);
+    }
+
+    /**
+     * Returns the cached quote for a stock or CRYPTO:-prefixed symbol.
+     */
+    public Quote getQuote(String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        return getQuoteEntry(symbol.trim().toUpperCase()).quote;
+    }
+
+    /**
+     * Returns the cached quote for a bare crypto symbol (BTC, ETH).
+     */
+    public Quote getCryptoQuote(String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new IllegalArgumentException("symbol is required");
+        }
+        return getQuoteEntry("CRYPTO:" + symbol.trim().toUpperCase()).quote;
+    }
+
+    /**
+     * Resolves prices for many symbols at once. Symbols are de-duplicated, cache hits are
+     * answered immediately, stock misses are fetched in parallel and crypto misses are
+     * folded into a single batched CoinMarketCap call.
+     * Symbols that fail or don't finish before the deadline are left out of the returned map,
+     * which is keyed by the symbol exactly as it was passed in.
+     */
+    public Map<String, BigDecimal> getCurrentPrices(Collection<String> symbols) {
+        Map<String, BigDecimal> prices = new HashMap<>();
+        resolveAll(symbols).forEach((symbol, cached) -> {
+            if (cached.price != null) {
+                prices.put(symbol, cached.price);
+            }
+        });
+        return prices;
+    }
+
+    /**
+     * Same as {@link #getCurrentPrices} but returns the full quotes, including ones without a usable price.
+     */
+    public Map<String, Quote> getQuotes(Collection<String> symbols) {
+        Map<String, Quote> quotes = new HashMap<>();
+        resolveAll(symbols).forEach((symbol, cached) -> quotes.put(symbol, cached.quote));
+        return quotes;
+    }
+
+    public long getLeaderRequestCount() {
+        return leaderRequests.get();
+    }
+
+    public long getCoalescedRequestCount() {
+        return coalescedRequests.get();
+    }
 
-        CachedPrice cached = priceCache.get(cacheKey);
-        if (cached != null && Instant.now().isBefore(cached.expiresAt)) {
-            return cached.price;
+    public long getStaleHitCount() {
+        return staleHits.get();
+    }
+
+    private Map<String, CachedQuote> resolveAll(Collection<String> symbols) {
+        Map<String, CachedQuote> resolved = new HashMap<>();
+        if (symbols == null || symbols.isEmpty()) {
+            return resolved;
+        }
+
+        // cacheKey -> every spelling of that symbol the caller asked for
+        Map<String, List<String>> requestedByKey = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            if (symbol == null || symbol.isBlank()) continue;
+            requestedByKey.computeIfAbsent(symbol.trim().toUpperCase(), k -> new ArrayList<>()).add(symbol);
+        }
+
+        // stock misses go first so their fetches are already running while crypto waits for its batch window
+        List<String> stockMisses = new ArrayList<>();
+        List<String> cryptoMisses = new ArrayList<>();
+
+        for (Map.Entry<String, List<String>> entry : requestedByKey.entrySet()) {
+            CachedQuote cached = lookup(entry.getKey());
+            if (cached != null) {
+                entry.getValue().forEach(s -> resolved.put(s, cached));
+            } else if (isCrypto(entry.getKey())) {
+                cryptoMisses.add(entry.getKey());
+            } else {
+                stockMisses.add(entry.getKey());
+            }
+        }
+
+        if (stockMisses.isEmpty() && cryptoMisses.isEmpty()) {
+            return resolved;
+        }
+
+        Map<String, CompletableFuture<CachedQuote>> pending = new LinkedHashMap<>();
+        for (String cacheKey : stockMisses) {
+            pending.put(cacheKey, loadQuoteAsync(cacheKey));
+        }
+        for (String cacheKey : cryptoMisses) {
+            pending.put(cacheKey, loadQuoteAsync(cacheKey));
         }
 
         try {
-            if (normalized.startsWith("CRYPTO:")) {
-                String cryptoSymbol = normalized.substring(7).toUpperCase(); // BTC, ETH, etc.
-                String cryptoQuoteJson = coinMarketCapService.getCryptoQuote(cryptoSymbol);
+            CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                    .get(bulkTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("Bulk price fetch hit the " + bulkTimeoutMillis + "ms deadline; returning partial results");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+            // individual failures are handled per symbol below
+        }
 
-                JsonNode cmcData = objectMapper.readTree(cryptoQuoteJson);
-                JsonNode cryptoData = cmcData.path("data").path(cryptoSymbol).get(0);
-                JsonNode quoteUsd = cryptoData.path("quote").path("USD");
-                double price = quoteUsd.path("price").asDouble(0.0);
+        for (Map.Entry<String, CompletableFuture<CachedQuote>> entry : pending.entrySet()) {
+            CompletableFuture<CachedQuote> future = entry.getValue();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                CachedQuote cached = future.join();
+                requestedByKey.get(entry.getKey()).forEach(s -> resolved.put(s, cached));
+            }
+        }
 
-                if (price <= 0.0) {
-                    throw new IllegalArgumentException("Invalid price returned for symbol: " + normalized);
-                }
+        return resolved;
+    }
+
+    private CachedQuote getQuoteEntry(String cacheKey) {
+        CachedQuote cached = lookup(cacheKey);
+        return cached != null ? cached : loadQuote(cacheKey);
+    }
+
+    /**
+     * Returns whatever is cached for the key. A stale entry is still returned, but a refresh
+     * is started in the background so the next caller sees a fresh price.
+     */
+    private CachedQuote lookup(String cacheKey) {
+        CachedQuote cached = quoteCache.getIfPresent(cacheKey);
+        if (cached == null) {
+            return null;
+        }
+
+        if (Instant.now().isAfter(cached.fetchedAt.plus(softTtl))) {
+            staleHits.incrementAndGet();
+            refreshAsync(cacheKey);
+        }
+        return cached;
+    }
 
-                BigDecimal bdPrice = BigDecimal.valueOf(price);
-                priceCache.put(cacheKey, new CachedPrice(bdPrice, Instant.now().plusSeconds(CACHE_TTL_SECONDS)));
-                return bdPrice;
+    private void refreshAsync(String cacheKey) {
+        if (inFlight.containsKey(cacheKey)) {
+            return;
+        }
+        loadQuoteAsync(cacheKey).exceptionally(e -> {
+            System.err.println("Background refresh failed for " + cacheKey + ": " + e.getMessage());
+            return null;
+        });
+    }
+
+    private CachedQuote loadQuote(String cacheKey) {
+        try {
+            return loadQuoteAsync(cacheKey).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IllegalArgumentException iae) {
+                throw iae;
             }
+            if (e.getCause() instanceof RateLimitExceededException limited) {
+                throw limited;
+            }
+            throw new IllegalArgumentException("Failed to fetch current price for symbol: " + cacheKey);
+        }
+    }
 
-            String quoteJson = finnhubService.getQuote(cacheKey);
-            JsonNode quoteNode = objectMapper.readTree(quoteJson);
+    private CompletableFuture<CachedQuote> loadQuoteAsync(String cacheKey) {
+        CompletableFuture<CachedQuote> flight = new CompletableFuture<>();
+        CompletableFuture<CachedQuote> existing = inFlight.putIfAbsent(cacheKey, flight);
 
-            double current = quoteNode.path("c").asDouble(0.0);
+        if (existing != null) {
+            coalescedRequests.incrementAndGet();
+            return existing;
+        }
 
-            if (current <= 0.0) {
-                throw new IllegalArgumentException("Invalid price returned for symbol: " + normalized);
+        leaderRequests.incrementAndGet();
+        fetchQuote(cacheKey).whenComplete((quote, error) -> {
+            try {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof RateLimitExceededException) {
+                    flight.completeExceptionally(cause);
+                } else if (error != null || quote == null) {
+                    flight.completeExceptionally(
+                            new IllegalArgumentException("Failed to fetch current price for symbol: " + cacheKey));
+                } else {
+                    CachedQuote cached = new CachedQuote(quote);
+                    quoteCache.put(cacheKey, cached);
+                    flight.complete(cached);
+                }
+            } finally {
+                inFlight.remove(cacheKey, flight);
             }
+        });
+        return flight;
+    }
+
+    private BigDecimal requirePrice(CachedQuote quote, String cacheKey) {
+        if (quote.price == null) {
+            throw new IllegalArgumentException("Invalid price returned for symbol: " + cacheKey);
+        }
+        return quote.price;
+    }
 
-            BigDecimal bdPrice = BigDecimal.valueOf(current);
-            priceCache.put(cacheKey, new CachedPrice(bdPrice, Instant.now().plusSeconds(CACHE_TTL_SECONDS)));
-            return bdPrice;
+    private boolean isCrypto(String cacheKey) {
+        return cacheKey.startsWith("CRYPTO:");
+    }
 
-        } catch (IllegalArgumentException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Failed to fetch current price for symbol: " + normalized);
+    private CompletableFuture<Quote> fetchQuote(String cacheKey) {
+        if (isCrypto(cacheKey)) {
+            return cryptoQuoteBatcher.submit(cacheKey.substring(7)); // BTC, ETH, etc.
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> providers.quote(cacheKey), fetchExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 }
@@ -0,0 +1,202 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.dto.OrderLeg;
+import com.zipcode.invested.dto.PlaceOrderRequest;
+import com.zipcode.invested.market.OrderBook;
+import com.zipcode.invested.order.TradeOrder;
+import com.zipcode.invested.order.TradeOrderRepository;
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.portfolio.PortfolioRepository;
+import com.zipcode.invested.transaction.Transaction;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps OPEN limit and stop orders in one {@link OrderBook} per symbol and fills them when a price
+ * tick reaches them. Ticks come from polling the quotes of symbols that have resting orders
+ * every {@code orders.poll-ms}, or from anything else that calls {@link #onPrice}.
+ *
+ * A fired order is filled at the tick's price through {@link PortfolioService#executeOrders}, and
+ * marked FILLED in the same transaction, so a trade is never recorded without its order being
+ * closed or the other way round. Funds and shares are checked at fill time rather than reserved
+ * when the order is placed; an order that no longer fits is REJECTED. Orders are stored, and the
+ * books are rebuilt from the OPEN ones on startup.
+ */
+@Service
+public class OrderEngine {
+
+    private final TradeOrderRepository orderRepository;
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioService portfolioService;
+    private final AssetService assetService;
+    private final MarketDataService marketDataService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+
+    public OrderEngine(TradeOrderRepository orderRepository,
+                       PortfolioRepository portfolioRepository,
+                       PortfolioService portfolioService,
+                       AssetService assetService,
+                       MarketDataService marketDataService,
+                       PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.portfolioRepository = portfolioRepository;
+        this.portfolioService = portfolioService;
+        this.assetService = assetService;
+        this.marketDataService = marketDataService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        List<TradeOrder> open = orderRepository.findByStatus(TradeOrder.Status.OPEN);
+        for (TradeOrder order : open) {
+            rest(order);
+        }
+        System.out.println("Order engine recovered " + open.size() + " open orders");
+    }
+
+    public TradeOrder place(PlaceOrderRequest request) {
+        TradeOrder.Side side = parse(TradeOrder.Side.class, request.getSide(), "side");
+        TradeOrder.Type type = parse(TradeOrder.Type.class, request.getType(), "type");
+        if (request.getSymbol() == null || request.getSymbol().isBlank()
+                || request.getAssetType() == null || request.getAssetType().isBlank()) {
+            throw new IllegalArgumentException("symbol and assetType are required");
+        }
+        if (request.getQuantity() == null || request.getQuantity().signum() <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        if (request.getTriggerPrice() == null || request.getTriggerPrice().signum() <= 0) {
+            throw new IllegalArgumentException("Trigger price must be greater than zero");
+        }
+        Portfolio portfolio = portfolioRepository.findById(request.getPortfolioId())
+                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
+
+        String symbol = request.getSymbol().trim().toUpperCase();
+        String assetName = request.getAssetName() == null || request.getAssetName().isBlank() ? symbol : request.getAssetName();
+        // create the asset now: the fill runs inside a transaction, where creating it would need a second connection
+        assetService.findOrCreate(symbol, assetName, request.getAssetType());
+        TradeOrder order = orderRepository.save(new TradeOrder(portfolio, symbol, assetName, request.getAssetType(),
+                side, type, request.getQuantity(), request.getTriggerPrice()));
+        rest(order);
+        return order;
+    }
+
+    public TradeOrder cancel(Long orderId) {
+        TradeOrder order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("Order not found"));
+        if (orderRepository.closeIfOpen(orderId, TradeOrder.Status.CANCELLED, Instant.now(), null, null, null) == 0) {
+            // the update cleared the persistence context, so this reads the status that got there first
+            TradeOrder current = orderRepository.findById(orderId).orElse(order);
+            throw new IllegalArgumentException("Order " + orderId + " is already " + current.getStatus());
+        }
+        OrderBook book = books.get(order.getSymbol());
+        if (book != null) {
+            synchronized (book) {
+                book.remove(orderId);
+            }
+        }
+        return orderRepository.findById(orderId).orElse(order);
+    }
+
+    public List<TradeOrder> findByPortfolio(Portfolio portfolio) {
+        return orderRepository.findByPortfolioOrderByCreatedAtDesc(portfolio);
+    }
+
+    @Scheduled(initialDelayString = "${orders.poll-initial-delay-ms:15000}", fixedDelayString = "${orders.poll-ms:15000}")
+    public void pollPrices() {
+        List<String> symbols = new ArrayList<>();
+        books.forEach((symbol, book) -> {
+            synchronized (book) {
+                if (!book.isEmpty()) symbols.add(symbol);
+            }
+        });
+        if (symbols.isEmpty()) return;
+
+        try {
+            marketDataService.getCurrentPrices(symbols).forEach(this::onPrice);
+        } catch (Exception e) {
+            System.err.println("Order engine price poll failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fills every order resting on {@code symbol} that {@code price} reaches and returns how many
+     * were filled.
+     */
+    public int onPrice(String symbol, BigDecimal price) {
+        OrderBook book = books.get(symbol.trim().toUpperCase());
+        if (book == null || price == null || price.signum() <= 0) return 0;
+
+        List<Long> fired;
+        synchronized (book) {
+            fired = book.trigger(OrderBook.toMicros(price));
+        }
+        int filled = 0;
+        for (Long orderId : fired) {
+            if (fill(orderId, price)) filled++;
+        }
+        return filled;
+    }
+
+    private boolean fill(Long orderId, BigDecimal price) {
+        TradeOrder order = orderRepository.findById(orderId).orElse(null);
+        if (order == null || order.getStatus() != TradeOrder.Status.OPEN) return false;
+
+        OrderLeg leg = new OrderLeg(order.getSide().name(), order.getSymbol(), order.getAssetName(),
+                order.getAssetType(), order.getQuantity(), price);
+        try {
+            Boolean filled = transactionTemplate.execute(status -> {
+                List<Transaction> transactions = portfolioService.executeOrders(order.getPortfolio().getId(), List.of(leg));
+                if (orderRepository.closeIfOpen(orderId, TradeOrder.Status.FILLED, Instant.now(), price,
+                        transactions.get(0).getId(), null) == 0) {
+                    // cancelled after the tick fired it; undo the trade
+                    status.setRollbackOnly();
+                    return false;
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(filled)) {
+                System.out.println("Filled " + order.getType() + " " + order.getSide() + " order " + orderId + " for "
+                        + order.getQuantity() + " " + order.getSymbol() + " at " + price);
+            }
+            return Boolean.TRUE.equals(filled);
+        } catch (IllegalArgumentException e) {
+            // funds or shares no longer cover it
+            orderRepository.closeIfOpen(orderId, TradeOrder.Status.REJECTED, Instant.now(), null, null, e.getMessage());
+            System.out.println("Rejected order " + orderId + ": " + e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            System.err.println("Order " + orderId + " could not be filled, keeping it open: " + e.getMessage());
+            rest(order);
+            return false;
+        }
+    }
+
+    private void rest(TradeOrder order) {
+        OrderBook book = books.computeIfAbsent(order.getSymbol(), s -> new OrderBook());
+        synchronized (book) {
+            book.add(order.getId(), OrderBook.toMicros(order.getTriggerPrice()), order.firesOnRise());
+        }
+    }
+
+    private static <E extends Enum<E>> E parse(Class<E> type, String value, String field) {
+        try {
+            return Enum.valueOf(type, value == null ? "" : value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+}
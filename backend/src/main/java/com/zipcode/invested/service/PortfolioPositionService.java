@@ -13,9 +13,12 @@ import java.util.Optional;
 public class PortfolioPositionService {
 
     private final PortfolioPositionRepository positionRepository;
+    private final HoldingsLedgerService holdingsLedgerService;
 
-    public PortfolioPositionService(PortfolioPositionRepository positionRepository) {
+    public PortfolioPositionService(PortfolioPositionRepository positionRepository,
+                                    HoldingsLedgerService holdingsLedgerService) {
         this.positionRepository = positionRepository;
+        this.holdingsLedgerService = holdingsLedgerService;
     }
 
     public List<PortfolioPosition> findByPortfolio(Portfolio portfolio) {
@@ -26,7 +29,10 @@ public class PortfolioPositionService {
         return positionRepository.findByPortfolioAndAsset(portfolio, asset);
     }
 
+    // positions saved here don't come from a trade, so they change the portfolio's opening balance
     public PortfolioPosition save(PortfolioPosition position) {
-        return positionRepository.save(position);
+        PortfolioPosition saved = positionRepository.save(position);
+        holdingsLedgerService.invalidate(saved.getPortfolio());
+        return saved;
     }
 }
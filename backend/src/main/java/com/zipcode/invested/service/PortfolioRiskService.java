@@ -0,0 +1,159 @@
+package com.zipcode.invested.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.RiskAccumulator;
+import com.zipcode.invested.portfolio.Portfolio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Risk numbers for one portfolio: volatility (full period and rolling), max drawdown, beta
+ * against {@code risk.benchmark}, Sharpe and Sortino.
+ *
+ * The daily value curve comes from the transaction replay valued on daily bars from the candle
+ * store, and is folded into a {@link RiskAccumulator}. Results are cached per portfolio for
+ * {@code risk.cache.refresh-ms}. When an entry goes stale, only days completed since the last
+ * computation are added to the kept accumulator. A trade in the portfolio drops its entry.
+ */
+@Service
+public class PortfolioRiskService {
+
+    private static final String INTERVAL = "1day";
+
+    private final HoldingsLedgerService holdingsLedgerService;
+    private final PortfolioValuationEngine valuationEngine;
+    private final CandleStore candleStore;
+    private final String benchmark;
+    private final int lookbackDays;
+    private final int rollingWindow;
+    private final double riskFreeRate;
+    private final long refreshMillis;
+
+    private final Cache<Long, Entry> results;
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    public PortfolioRiskService(
+            HoldingsLedgerService holdingsLedgerService,
+            PortfolioValuationEngine valuationEngine,
+            CandleStore candleStore,
+            @Value("${risk.benchmark:SPY}") String benchmark,
+            @Value("${risk.lookback-days:365}") int lookbackDays,
+            @Value("${risk.rolling-window:30}") int rollingWindow,
+            @Value("${risk.risk-free-rate:0.04}") double riskFreeRate,
+            @Value("${risk.cache.refresh-ms:300000}") long refreshMillis,
+            @Value("${risk.cache.max-entries:1000}") long maxEntries
+    ) {
+        this.holdingsLedgerService = holdingsLedgerService;
+        this.valuationEngine = valuationEngine;
+        this.candleStore = candleStore;
+        this.benchmark = benchmark.trim().toUpperCase();
+        this.lookbackDays = Math.max(2, lookbackDays);
+        this.rollingWindow = Math.max(2, rollingWindow);
+        this.riskFreeRate = riskFreeRate;
+        this.refreshMillis = refreshMillis;
+        this.results = Caffeine.newBuilder().maximumSize(maxEntries).build();
+    }
+
+    public Map<String, Object> getRisk(Portfolio portfolio) {
+        Entry cached = results.getIfPresent(portfolio.getId());
+        if (cached != null && System.currentTimeMillis() - cached.computedAt < refreshMillis) {
+            return cached.result;
+        }
+
+        synchronized (locks.computeIfAbsent(portfolio.getId(), id -> new Object())) {
+            cached = results.getIfPresent(portfolio.getId());
+            if (cached != null && System.currentTimeMillis() - cached.computedAt < refreshMillis) {
+                return cached.result;
+            }
+
+            Instant now = Instant.now();
+            long from = now.minus(lookbackDays, ChronoUnit.DAYS).getEpochSecond();
+            // today's daily bar is still moving; only completed days go into the accumulator
+            long completedBefore = now.truncatedTo(ChronoUnit.DAYS).getEpochSecond();
+
+            // keep adding to the previous accumulator until its start falls well outside the lookback
+            RiskAccumulator accumulator = cached != null && cached.accumulator.getFirstTimestamp() >= from - 30 * 86400L
+                    ? cached.accumulator
+                    : new RiskAccumulator(riskFreeRate, rollingWindow);
+
+            String requester = "risk-" + portfolio.getId();
+            HoldingsLedgerService.Timeline timeline = holdingsLedgerService.timeline(
+                    List.of(portfolio), Instant.ofEpochSecond(from), asset -> true);
+            Map<String, CandleSeries> series = valuationEngine.loadSeries(
+                    timeline.getSymbols(), INTERVAL, lookbackDays, requester);
+            PortfolioValuationEngine.Curve curve = valuationEngine.value(timeline, series, INTERVAL, from);
+            CandleSeries benchmarkBars = candleStore.getSeries(benchmark, INTERVAL, lookbackDays, requester);
+
+            long[] timestamps = curve.getTimestamps();
+            double[] values = curve.getValues();
+            int b = 0;
+            double benchmarkClose = Double.NaN;
+            int added = 0;
+            for (int i = 0; i < timestamps.length; i++) {
+                long t = timestamps[i];
+                while (!benchmarkBars.isError() && b < benchmarkBars.size() && benchmarkBars.getTimestamp(b) <= t) {
+                    benchmarkClose = benchmarkBars.getClose(b++);
+                }
+                if (t > accumulator.getLastTimestamp() && t < completedBefore) {
+                    accumulator.add(t, values[i], benchmarkClose);
+                    added++;
+                }
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("portfolioId", portfolio.getId());
+            result.put("asOf", accumulator.getLastTimestamp() == Long.MIN_VALUE
+                    ? null : Instant.ofEpochSecond(accumulator.getLastTimestamp()).toString());
+            result.put("observations", accumulator.getObservations());
+            result.put("volatility", orNull(accumulator.getVolatility()));
+            result.put("rollingVolatility", orNull(accumulator.getRollingVolatility()));
+            result.put("rollingWindow", accumulator.getRollingWindow());
+            result.put("maxDrawdown", accumulator.getMaxDrawdown());
+            result.put("benchmark", benchmark);
+            result.put("beta", benchmarkBars.isError() ? null : orNull(accumulator.getBeta()));
+            result.put("sharpe", orNull(accumulator.getSharpe()));
+            result.put("sortino", orNull(accumulator.getSortino()));
+            result.put("riskFreeRate", riskFreeRate);
+            result = Collections.unmodifiableMap(result);
+
+            System.out.println("Risk for portfolio " + portfolio.getId() + ": added " + added + " days ("
+                    + accumulator.getObservations() + " returns)");
+            results.put(portfolio.getId(), new Entry(accumulator, result, System.currentTimeMillis()));
+            return result;
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTradeExecuted(TradeExecutedEvent event) {
+        results.invalidate(event.getPortfolioId());
+    }
+
+    // JSON has no NaN
+    private static Double orNull(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? null : value;
+    }
+
+    private static final class Entry {
+        final RiskAccumulator accumulator;
+        final Map<String, Object> result;
+        final long computedAt;
+
+        Entry(RiskAccumulator accumulator, Map<String, Object> result, long computedAt) {
+            this.accumulator = accumulator;
+            this.result = result;
+            this.computedAt = computedAt;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.zipcode.invested.service;
 
 import com.zipcode.invested.asset.Asset;
-import com.zipcode.invested.asset.AssetRepository;
 import com.zipcode.invested.dto.BuyRequest;
+import com.zipcode.invested.dto.OrderLeg;
+import com.zipcode.invested.dto.UserHoldings;
 import com.zipcode.invested.portfolio.Portfolio;
 import com.zipcode.invested.portfolio.PortfolioRepository;
 import com.zipcode.invested.position.PortfolioPosition;
@@ -10,32 +11,48 @@ import com.zipcode.invested.position.PortfolioPositionRepository;
 import com.zipcode.invested.transaction.Transaction;
 import com.zipcode.invested.transaction.TransactionRepository;
 import com.zipcode.invested.user.User;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.RoundingMode;
 
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class PortfolioService {
 
     private final PortfolioRepository portfolioRepository;
-    private final AssetRepository assetRepository;
+    private final AssetService assetService;
     private final PortfolioPositionRepository positionRepository;
     private final TransactionRepository transactionRepository;
+    private final HoldingsLedgerService holdingsLedgerService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate tradeTransaction;
 
     public PortfolioService(PortfolioRepository portfolioRepository,
-                           AssetRepository assetRepository,
+                           AssetService assetService,
                            PortfolioPositionRepository positionRepository,
-                           TransactionRepository transactionRepository) {
+                           TransactionRepository transactionRepository,
+                           HoldingsLedgerService holdingsLedgerService,
+                           ApplicationEventPublisher eventPublisher,
+                           PlatformTransactionManager transactionManager) {
         this.portfolioRepository = portfolioRepository;
-        this.assetRepository = assetRepository;
+        this.assetService = assetService;
         this.positionRepository = positionRepository;
         this.transactionRepository = transactionRepository;
+        this.holdingsLedgerService = holdingsLedgerService;
+        this.eventPublisher = eventPublisher;
+        this.tradeTransaction = new TransactionTemplate(transactionManager);
     }
 
     public List<Portfolio> findAll() {
@@ -50,15 +67,61 @@ public class PortfolioService {
         return portfolioRepository.findByUser(user);
     }
 
+    /**
+     * All of the user's portfolios, positions and assets in a single query, for the user-level
+     * views that would otherwise select positions portfolio by portfolio.
+     */
+    @Transactional(readOnly = true)
+    public UserHoldings findHoldingsByUser(User user) {
+        Map<Portfolio, List<PortfolioPosition>> positions = new LinkedHashMap<>();
+        for (Object[] row : portfolioRepository.findWithPositionsByUser(user)) {
+            List<PortfolioPosition> list = positions.computeIfAbsent((Portfolio) row[0], p -> new ArrayList<>());
+            if (row[1] != null) {
+                list.add((PortfolioPosition) row[1]);
+            }
+        }
+        return new UserHoldings(positions);
+    }
+
     public Portfolio save(Portfolio portfolio) {
-        return portfolioRepository.save(portfolio);
+        boolean existing = portfolio.getId() != null;
+        Portfolio saved = portfolioRepository.save(portfolio);
+        if (existing) {
+            // a direct cash edit moves the opening balance the holdings checkpoints are built on
+            holdingsLedgerService.invalidate(saved);
+        }
+        return saved;
     }
 
-    @Transactional
-    public PortfolioPosition executeBuy(Long portfolioId, BuyRequest buyRequest) {
-        // 1. Validate portfolio exists
-        Portfolio portfolio = portfolioRepository.findById(portfolioId)
+    /**
+     * Trades read the cash balance and position, change them and write them back, so two trades on
+     * one portfolio must not interleave. Each trade takes a row lock on its portfolio before reading
+     * anything; the lock is held until the transaction ends. This works across application
+     * instances, and trades on different portfolios never wait for each other.
+     */
+    private Portfolio lockPortfolio(Long portfolioId) {
+        return portfolioRepository.findByIdForUpdate(portfolioId)
                 .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
+    }
+
+    /**
+     * A first trade in a symbol creates its asset. That insert commits on its own connection, so
+     * it happens here, before the trade transaction takes a connection and the portfolio lock;
+     * otherwise enough concurrent first trades would each hold one pooled connection while
+     * waiting for a second.
+     */
+    public PortfolioPosition executeBuy(Long portfolioId, BuyRequest buyRequest) {
+        Asset asset = assetService.findOrCreate(
+                buyRequest.getSymbol(),
+                buyRequest.getAssetName(),
+                buyRequest.getAssetType()
+        );
+        return tradeTransaction.execute(status -> buy(portfolioId, buyRequest, asset));
+    }
+
+    private PortfolioPosition buy(Long portfolioId, BuyRequest buyRequest, Asset asset) {
+        // 1. Validate portfolio exists, locking it until commit
+        Portfolio portfolio = lockPortfolio(portfolioId);
 
         // 2. Calculate total cost
         BigDecimal totalCost = buyRequest.getCurrentPrice().multiply(buyRequest.getQuantity());
@@ -68,35 +131,14 @@ public class PortfolioService {
             throw new IllegalArgumentException("Insufficient funds. Available: " + portfolio.getCashBalance() + ", Required: " + totalCost);
         }
 
-        // 4. Get or create Asset
-        Optional<Asset> existingAsset = assetRepository.findBySymbolAndAssetType(
-                buyRequest.getSymbol(),
-                buyRequest.getAssetType()
-        );
-
-        Asset asset;
-        if (existingAsset.isPresent()) {
-            asset = existingAsset.get();
-        } else {
-            asset = new Asset(buyRequest.getSymbol(), buyRequest.getAssetName(), buyRequest.getAssetType());
-            asset = assetRepository.save(asset);
-        }
-
-        // 5. Get or create PortfolioPosition
+        // 4. Get or create PortfolioPosition (the asset was resolved before the transaction)
         Optional<PortfolioPosition> existingPosition = positionRepository.findByPortfolioAndAsset(portfolio, asset);
 
         PortfolioPosition position;
         if (existingPosition.isPresent()) {
             // Update existing position with weighted average cost
             position = existingPosition.get();
-            BigDecimal currentValue = position.getQuantity().multiply(position.getAverageBuyPrice());
-            BigDecimal newValue = buyRequest.getQuantity().multiply(buyRequest.getCurrentPrice());
-            BigDecimal totalQuantity = position.getQuantity().add(buyRequest.getQuantity());
-            BigDecimal newAvgPrice = currentValue.add(newValue).divide(totalQuantity, 6, RoundingMode.HALF_UP);
-
-            position.setQuantity(totalQuantity);
-            position.setAverageBuyPrice(newAvgPrice);
-            position.setUpdatedAt(Instant.now());
+            addToPosition(position, buyRequest.getQuantity(), buyRequest.getCurrentPrice());
         } else {
             // Create new position
             position = new PortfolioPosition(
@@ -109,11 +151,11 @@ public class PortfolioService {
 
         position = positionRepository.save(position);
 
-        // 6. Deduct cash from portfolio
+        // 5. Deduct cash from portfolio
         portfolio.setCashBalance(portfolio.getCashBalance().subtract(totalCost));
         portfolioRepository.save(portfolio);
 
-        // 7. Record transaction
+        // 6. Record transaction
         Transaction transaction = new Transaction();
         transaction.setPortfolio(portfolio);
         transaction.setAsset(asset);
@@ -123,15 +165,15 @@ public class PortfolioService {
         transaction.setTotalAmount(totalCost);
         transaction.setTransactionDate(Instant.now());
         transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new TradeExecutedEvent(portfolio.getUser().getId(), portfolioId));
 
         return position;
     }
 
     @Transactional
     public PortfolioPosition executeSell(Long portfolioId, Long positionId, BigDecimal quantityToSell, BigDecimal currentPrice) {
-        // 1. Validate portfolio exists
-        Portfolio portfolio = portfolioRepository.findById(portfolioId)
-                .orElseThrow(() -> new IllegalArgumentException("Portfolio not found"));
+        // 1. Validate portfolio exists, locking it until commit
+        Portfolio portfolio = lockPortfolio(portfolioId);
 
         // 2. Validate position exists and belongs to this portfolio
         PortfolioPosition position = positionRepository.findById(positionId)
@@ -184,7 +226,146 @@ public class PortfolioService {
         transaction.setTotalAmount(totalProceeds);
         transaction.setTransactionDate(Instant.now());
         transactionRepository.save(transaction);
+        eventPublisher.publishEvent(new TradeExecutedEvent(portfolio.getUser().getId(), portfolioId));
 
         return position; // null if position fully closed, updated position if partial sale
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs several buys and sells on one portfolio in a single transaction. The legs are checked in
+     * order against one snapshot of the cash balance and positions, so a sell early in the list
+     * can fund a later buy, and nothing is written unless every leg fits. The writes then go out
+     * together: position changes and the transaction rows are flushed as JDBC batches at commit.
+     *
+     * Assets for the buy legs are resolved first, outside the trade transaction, for the same
+     * reason as in {@link #executeBuy}. A caller that already has a transaction open should make
+     * sure the assets exist beforehand.
+     *
+     * @return the recorded transactions, in leg order
+     */
+    public List<Transaction> executeOrders(Long portfolioId, List<OrderLeg> legs) {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one leg");
+        }
+        Map<String, Asset> assets = new HashMap<>();
+        for (int i = 0; i < legs.size(); i++) {
+            OrderLeg leg = legs.get(i);
+            validateLeg(leg, "Leg " + (i + 1) + ": ");
+            String key = positionKey(leg.getSymbol(), leg.getAssetType());
+            if (leg.isBuy() && !assets.containsKey(key)) {
+                assets.put(key, assetService.findOrCreate(leg.getSymbol(),
+                        leg.getAssetName() != null ? leg.getAssetName() : leg.getSymbol(), leg.getAssetType()));
+            }
+        }
+        return tradeTransaction.execute(status -> applyOrders(portfolioId, legs, assets));
+    }
+
+    private List<Transaction> applyOrders(Long portfolioId, List<OrderLeg> legs, Map<String, Asset> assets) {
+        Portfolio portfolio = lockPortfolio(portfolioId);
+
+        Map<String, PortfolioPosition> positions = new HashMap<>();
+        for (PortfolioPosition position : positionRepository.findByPortfolioWithAsset(portfolio)) {
+            positions.put(positionKey(position.getAsset().getSymbol(), position.getAsset().getAssetType()), position);
+        }
+
+        // 1. Check every leg against the simulated balance before touching anything
+        BigDecimal cash = portfolio.getCashBalance();
+        Map<String, BigDecimal> held = new HashMap<>();
+        positions.forEach((key, position) -> held.put(key, position.getQuantity()));
+
+        for (int i = 0; i < legs.size(); i++) {
+            OrderLeg leg = legs.get(i);
+            String prefix = "Leg " + (i + 1) + ": ";
+
+            String key = positionKey(leg.getSymbol(), leg.getAssetType());
+            BigDecimal amount = leg.getQuantity().multiply(leg.getPrice());
+            BigDecimal quantity = held.getOrDefault(key, BigDecimal.ZERO);
+            if (leg.isBuy()) {
+                if (cash.compareTo(amount) < 0) {
+                    throw new IllegalArgumentException(prefix + "Insufficient funds. Available: " + cash + ", Required: " + amount);
+                }
+                cash = cash.subtract(amount);
+                held.put(key, quantity.add(leg.getQuantity()));
+            } else {
+                if (leg.getQuantity().compareTo(quantity) > 0) {
+                    throw new IllegalArgumentException(prefix + "Cannot sell " + leg.getQuantity() + " " + leg.getSymbol()
+                            + ", only " + quantity + " held");
+                }
+                cash = cash.add(amount);
+                held.put(key, quantity.subtract(leg.getQuantity()));
+            }
+        }
+
+        // 2. Apply them. A position sold out is only deleted at the end, so a later leg buying it
+        // back reuses the row instead of inserting a duplicate before the delete is flushed.
+        Instant now = Instant.now();
+        List<Transaction> transactions = new ArrayList<>(legs.size());
+        for (OrderLeg leg : legs) {
+            String key = positionKey(leg.getSymbol(), leg.getAssetType());
+            PortfolioPosition position = positions.get(key);
+
+            if (leg.isBuy()) {
+                if (position == null) {
+                    position = positionRepository.save(new PortfolioPosition(portfolio, assets.get(key),
+                            leg.getQuantity(), leg.getPrice()));
+                    positions.put(key, position);
+                } else {
+                    addToPosition(position, leg.getQuantity(), leg.getPrice());
+                }
+            } else {
+                position.setQuantity(position.getQuantity().subtract(leg.getQuantity()));
+                position.setUpdatedAt(now);
+            }
+
+            Transaction transaction = new Transaction(portfolio, position.getAsset(),
+                    leg.isBuy() ? "BUY" : "SELL", leg.getQuantity(), leg.getPrice());
+            transaction.setTransactionDate(now);
+            transactions.add(transaction);
+        }
+
+        for (PortfolioPosition position : positions.values()) {
+            if (position.getQuantity().signum() == 0) {
+                positionRepository.delete(position);
+            }
+        }
+        portfolio.setCashBalance(cash);
+        transactionRepository.saveAll(transactions);
+        eventPublisher.publishEvent(new TradeExecutedEvent(portfolio.getUser().getId(), portfolioId));
+
+        return transactions;
+    }
+
+    private static void validateLeg(OrderLeg leg, String prefix) {
+        if (leg == null) {
+            throw new IllegalArgumentException(prefix + "missing");
+        }
+        if (!"BUY".equalsIgnoreCase(leg.getSide()) && !"SELL".equalsIgnoreCase(leg.getSide())) {
+            throw new IllegalArgumentException(prefix + "side must be BUY or SELL");
+        }
+        if (leg.getSymbol() == null || leg.getSymbol().isBlank() || leg.getAssetType() == null || leg.getAssetType().isBlank()) {
+            throw new IllegalArgumentException(prefix + "symbol and assetType are required");
+        }
+        if (leg.getQuantity() == null || leg.getQuantity().signum() <= 0) {
+            throw new IllegalArgumentException(prefix + "Quantity must be greater than zero");
+        }
+        if (leg.getPrice() == null || leg.getPrice().signum() <= 0) {
+            throw new IllegalArgumentException(prefix + "Price must be greater than zero");
+        }
+    }
+
+    private static String positionKey(String symbol, String assetType) {
+        return symbol + "|" + assetType;
+    }
+
+    // Weighted average cost over the old and new lots
+    private static void addToPosition(PortfolioPosition position, BigDecimal quantity, BigDecimal price) {
+        BigDecimal currentValue = position.getQuantity().multiply(position.getAverageBuyPrice());
+        BigDecimal newValue = quantity.multiply(price);
+        BigDecimal totalQuantity = position.getQuantity().add(quantity);
+        BigDecimal newAvgPrice = currentValue.add(newValue).divide(totalQuantity, 6, RoundingMode.HALF_UP);
+
+        position.setQuantity(totalQuantity);
+        position.setAverageBuyPrice(newAvgPrice);
+        position.setUpdatedAt(Instant.now());
+    }
+}
@@ -0,0 +1,141 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.portfolio.PortfolioRepository;
+import com.zipcode.invested.position.PortfolioPosition;
+import com.zipcode.invested.position.PortfolioPositionRepository;
+import com.zipcode.invested.snapshot.PortfolioSnapshot;
+import com.zipcode.invested.snapshot.SnapshotCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captures the value and holdings of every portfolio on a fixed schedule. Each tick loads all
+ * positions in one query, prices every distinct symbol with a single bulk lookup, and writes
+ * all snapshots in batched inserts sharing one capturedAt.
+ *
+ * Holdings are stored with {@link SnapshotCodec}: a delta against the portfolio's previous
+ * capture, with a full keyframe every {@code snapshots.keyframe-interval} captures and after a
+ * restart (the previous state is only kept in memory).
+ */
+@Service
+public class PortfolioSnapshotJob {
+
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioPositionRepository positionRepository;
+    private final MarketDataService marketDataService;
+    private final PortfolioSnapshotService snapshotService;
+    private final int keyframeInterval;
+
+    // last captured state per portfolio id, the base for the next delta
+    private final Map<Long, Chain> chains = new ConcurrentHashMap<>();
+
+    private static final class Chain {
+        final SnapshotCodec.State state;
+        final int sequence;
+
+        Chain(SnapshotCodec.State state, int sequence) {
+            this.state = state;
+            this.sequence = sequence;
+        }
+    }
+
+    public PortfolioSnapshotJob(PortfolioRepository portfolioRepository,
+                                PortfolioPositionRepository positionRepository,
+                                MarketDataService marketDataService,
+                                PortfolioSnapshotService snapshotService,
+                                @Value("${snapshots.keyframe-interval:24}") int keyframeInterval) {
+        this.portfolioRepository = portfolioRepository;
+        this.positionRepository = positionRepository;
+        this.marketDataService = marketDataService;
+        this.snapshotService = snapshotService;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    @Scheduled(initialDelayString = "${snapshots.initial-delay-ms:60000}", fixedDelayString = "${snapshots.interval-ms:3600000}")
+    public void captureAll() {
+        try {
+            int captured = capture(Instant.now());
+            System.out.println("Captured " + captured + " portfolio snapshots");
+        } catch (Exception e) {
+            System.err.println("Portfolio snapshot capture failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Captures every portfolio as of {@code capturedAt} and returns how many snapshots were written.
+     */
+    public synchronized int capture(Instant capturedAt) {
+        List<Portfolio> portfolios = portfolioRepository.findAll();
+        if (portfolios.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<PortfolioPosition>> positionsByPortfolio = new HashMap<>();
+        Set<String> symbols = new HashSet<>();
+        for (PortfolioPosition position : positionRepository.findAllWithAssetAndPortfolio()) {
+            positionsByPortfolio.computeIfAbsent(position.getPortfolio().getId(), id -> new ArrayList<>()).add(position);
+            symbols.add(position.getAsset().getSymbol());
+        }
+
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(symbols);
+
+        List<PortfolioSnapshot> snapshots = new ArrayList<>(portfolios.size());
+        Map<Long, Chain> nextChains = new HashMap<>();
+        for (Portfolio portfolio : portfolios) {
+            List<PortfolioPosition> positions = positionsByPortfolio.getOrDefault(portfolio.getId(), List.of());
+
+            BigDecimal totalValue = portfolio.getCashBalance();
+            BigDecimal[] values = new BigDecimal[positions.size()];
+            BigDecimal[] positionPrices = new BigDecimal[positions.size()];
+            for (int i = 0; i < positions.size(); i++) {
+                PortfolioPosition position = positions.get(i);
+                positionPrices[i] = prices.getOrDefault(position.getAsset().getSymbol(), position.getAverageBuyPrice());
+                values[i] = position.getQuantity().multiply(positionPrices[i]);
+                totalValue = totalValue.add(values[i]);
+            }
+
+            SnapshotCodec.State state = new SnapshotCodec.State(portfolio.getCashBalance(), totalValue);
+            for (int i = 0; i < positions.size(); i++) {
+                PortfolioPosition position = positions.get(i);
+                state.put(position.getAsset().getId(), position.getQuantity(), positionPrices[i], values[i]);
+            }
+
+            Chain previous = chains.get(portfolio.getId());
+            boolean keyframe = previous == null || previous.sequence + 1 >= keyframeInterval;
+            int sequence = keyframe ? 0 : previous.sequence + 1;
+
+            PortfolioSnapshot snapshot = new PortfolioSnapshot(portfolio, "");
+            snapshot.setCapturedAt(capturedAt);
+            snapshot.setTotalValue(totalValue.setScale(2, RoundingMode.HALF_UP));
+            snapshot.setKeyframe(keyframe);
+            snapshot.setEncodedData(keyframe
+                    ? SnapshotCodec.encodeKeyframe(state, sequence)
+                    : SnapshotCodec.encodeDelta(previous.state, state, sequence));
+            snapshots.add(snapshot);
+            nextChains.put(portfolio.getId(), new Chain(state, sequence));
+        }
+
+        try {
+            snapshotService.saveAll(snapshots);
+        } catch (RuntimeException e) {
+            // the deltas just built were never stored; start every chain again from a keyframe
+            chains.clear();
+            throw e;
+        }
+        chains.putAll(nextChains);
+        return snapshots.size();
+    }
+}
@@ -2,19 +2,51 @@ package com.zipcode.invested.service;
 
 import com.zipcode.invested.snapshot.PortfolioSnapshot;
 import com.zipcode.invested.snapshot.PortfolioSnapshotRepository;
+import com.zipcode.invested.snapshot.PortfolioValueRollup;
+import com.zipcode.invested.snapshot.PortfolioValueRollupRepository;
+import com.zipcode.invested.snapshot.SnapshotCodec;
 import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.user.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 @Service
 public class PortfolioSnapshotService {
 
     private final PortfolioSnapshotRepository snapshotRepository;
+    private final PortfolioValueRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final Duration rawMaxSpan;
+    private final Duration hourlyMaxSpan;
 
-    public PortfolioSnapshotService(PortfolioSnapshotRepository snapshotRepository) {
+    public PortfolioSnapshotService(PortfolioSnapshotRepository snapshotRepository,
+                                    PortfolioValueRollupRepository rollupRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Value("${snapshots.batch-size:500}") int batchSize,
+                                    @Value("${snapshots.rollup.raw-max-days:7}") long rawMaxDays,
+                                    @Value("${snapshots.rollup.hourly-max-days:90}") long hourlyMaxDays) {
         this.snapshotRepository = snapshotRepository;
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.max(1, batchSize);
+        this.rawMaxSpan = Duration.ofDays(rawMaxDays);
+        this.hourlyMaxSpan = Duration.ofDays(hourlyMaxDays);
     }
 
     public List<PortfolioSnapshot> findByPortfolio(Portfolio portfolio) {
@@ -28,4 +60,129 @@ public class PortfolioSnapshotService {
     public PortfolioSnapshot save(PortfolioSnapshot snapshot) {
         return snapshotRepository.save(snapshot);
     }
+
+    /**
+     * Inserts many snapshots with JDBC batches and folds their values into the hourly and daily
+     * rollups. Goes around JPA because the IDENTITY ids on this table stop Hibernate from
+     * batching inserts.
+     */
+    @Transactional
+    public void saveAll(List<PortfolioSnapshot> snapshots) {
+        jdbcTemplate.batchUpdate(
+                "insert into portfolio_snapshot (portfolio_id, captured_at, total_value, snapshot_data, encoded_data, keyframe)"
+                        + " values (?, ?, ?, ?, ?, ?)",
+                snapshots,
+                batchSize,
+                (statement, snapshot) -> {
+                    statement.setLong(1, snapshot.getPortfolio().getId());
+                    statement.setTimestamp(2, Timestamp.from(snapshot.getCapturedAt()));
+                    statement.setBigDecimal(3, snapshot.getTotalValue());
+                    statement.setString(4, snapshot.getSnapshotData());
+                    statement.setBytes(5, snapshot.getEncodedData());
+                    statement.setObject(6, snapshot.getKeyframe());
+                });
+
+        for (PortfolioValueRollup.Resolution resolution : PortfolioValueRollup.Resolution.values()) {
+            rollUp(snapshots, resolution);
+        }
+    }
+
+    // Updates each portfolio's bucket row in place, inserting the ones this tick opens
+    private void rollUp(List<PortfolioSnapshot> snapshots, PortfolioValueRollup.Resolution resolution) {
+        Map<Instant, List<PortfolioSnapshot>> byBucket = new HashMap<>();
+        for (PortfolioSnapshot snapshot : snapshots) {
+            if (snapshot.getTotalValue() != null) {
+                byBucket.computeIfAbsent(resolution.bucketStart(snapshot.getCapturedAt()), b -> new ArrayList<>())
+                        .add(snapshot);
+            }
+        }
+
+        byBucket.forEach((bucketStart, inBucket) -> {
+            Timestamp bucket = Timestamp.from(bucketStart);
+            Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                    "select portfolio_id from portfolio_value_rollup where resolution = ? and bucket_start = ?",
+                    Long.class, resolution.name(), bucket));
+
+            List<PortfolioSnapshot> updates = new ArrayList<>();
+            List<PortfolioSnapshot> inserts = new ArrayList<>();
+            for (PortfolioSnapshot snapshot : inBucket) {
+                (existing.contains(snapshot.getPortfolio().getId()) ? updates : inserts).add(snapshot);
+            }
+
+            // captures arriving out of order don't move the close back
+            jdbcTemplate.batchUpdate(
+                    "update portfolio_value_rollup set min_value = least(min_value, ?), max_value = greatest(max_value, ?),"
+                            + " close_value = ?, last_captured_at = ?, sample_count = sample_count + 1"
+                            + " where portfolio_id = ? and resolution = ? and bucket_start = ? and last_captured_at < ?",
+                    updates,
+                    batchSize,
+                    (statement, snapshot) -> {
+                        Timestamp capturedAt = Timestamp.from(snapshot.getCapturedAt());
+                        statement.setBigDecimal(1, snapshot.getTotalValue());
+                        statement.setBigDecimal(2, snapshot.getTotalValue());
+                        statement.setBigDecimal(3, snapshot.getTotalValue());
+                        statement.setTimestamp(4, capturedAt);
+                        statement.setLong(5, snapshot.getPortfolio().getId());
+                        statement.setString(6, resolution.name());
+                        statement.setTimestamp(7, bucket);
+                        statement.setTimestamp(8, capturedAt);
+                    });
+
+            jdbcTemplate.batchUpdate(
+                    "insert into portfolio_value_rollup (portfolio_id, resolution, bucket_start, open_value, min_value,"
+                            + " max_value, close_value, last_captured_at, sample_count) values (?, ?, ?, ?, ?, ?, ?, ?, 1)",
+                    inserts,
+                    batchSize,
+                    (statement, snapshot) -> {
+                        statement.setLong(1, snapshot.getPortfolio().getId());
+                        statement.setString(2, resolution.name());
+                        statement.setTimestamp(3, bucket);
+                        for (int i = 4; i <= 7; i++) {
+                            statement.setBigDecimal(i, snapshot.getTotalValue());
+                        }
+                        statement.setTimestamp(8, Timestamp.from(snapshot.getCapturedAt()));
+                    });
+        });
+    }
+
+    /**
+     * Decodes a portfolio's encoded snapshots captured in [from, to], oldest first, handing each to
+     * the visitor as it is read. Decoding starts at the last keyframe at or before {@code from}.
+     * The state passed to the visitor is reused for the next snapshot.
+     */
+    @Transactional(readOnly = true)
+    public void readHistory(Portfolio portfolio, Instant from, Instant to,
+                            BiConsumer<Instant, SnapshotCodec.State> visitor) {
+        Instant start = snapshotRepository
+                .findFirstByPortfolioAndKeyframeTrueAndCapturedAtLessThanEqualOrderByCapturedAtDesc(portfolio, from)
+                .map(PortfolioSnapshot::getCapturedAt)
+                .orElse(from);
+
+        try (SnapshotCodec.Reader reader = new SnapshotCodec.Reader();
+             Stream<Object[]> rows = snapshotRepository.streamEncoded(portfolio, start, to)) {
+            rows.forEach(row -> {
+                Instant capturedAt = (Instant) row[0];
+                SnapshotCodec.State state = reader.next((byte[]) row[1]);
+                if (state != null && !capturedAt.isBefore(from)) {
+                    visitor.accept(capturedAt, state);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rows of [timestamp, total value across the user's portfolios], oldest first. Short ranges
+     * read the raw snapshots; longer ones read hourly or daily rollups (timestamped at the bucket
+     * start, valued at the bucket's last capture), so a year is a few hundred rows.
+     */
+    public List<Object[]> findUserValues(User user, Instant from, Instant to) {
+        Duration span = Duration.between(from, to);
+        if (span.compareTo(rawMaxSpan) <= 0) {
+            return snapshotRepository.sumTotalValueByCapture(user, from, to);
+        }
+        PortfolioValueRollup.Resolution resolution = span.compareTo(hourlyMaxSpan) <= 0
+                ? PortfolioValueRollup.Resolution.HOUR
+                : PortfolioValueRollup.Resolution.DAY;
+        return rollupRepository.sumCloseValueByBucket(user, resolution, resolution.bucketStart(from), to);
+    }
 }
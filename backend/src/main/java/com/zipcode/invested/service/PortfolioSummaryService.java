@@ -39,6 +39,11 @@ public class PortfolioSummaryService {
 
         Map<String, BigDecimal> marketValueByType = new HashMap<>();
 
+        List<String> symbols = positions.stream()
+                .map(p -> p.getAsset().getSymbol())
+                .toList();
+        Map<String, BigDecimal> prices = marketDataService.getCurrentPrices(symbols);
+
         for (PortfolioPosition p : positions) {
             BigDecimal qty = nz(p.getQuantity());
             BigDecimal avgBuy = nz(p.getAverageBuyPrice());
@@ -47,7 +52,10 @@ public class PortfolioSummaryService {
             totalCostBasis = totalCostBasis.add(costBasis);
 
             String symbol = p.getAsset().getSymbol();
-            BigDecimal priceNow = marketDataService.getCurrentPrice(symbol);
+            BigDecimal priceNow = prices.get(symbol);
+            if (priceNow == null) {
+                throw new IllegalArgumentException("Failed to fetch current price for symbol: " + symbol);
+            }
 
             BigDecimal marketValue = qty.multiply(priceNow);
             totalMarketValue = totalMarketValue.add(marketValue);
@@ -0,0 +1,166 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.SeriesAligner;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Values a portfolio over time. Every symbol's closes are aligned as a {@code double[]} column on a
+ * shared timestamp axis (see {@link SeriesAligner}), the holdings replayed from transactions are
+ * sampled onto the same axis, and the curve is summed column by column, so the cost is one
+ * multiply-add per symbol per point.
+ */
+@Service
+public class PortfolioValuationEngine {
+
+    private final CandleStore candleStore;
+    private final ExecutorService loadExecutor;
+    private final long loadTimeoutMillis;
+    private final SeriesAligner.Calendar calendar;
+
+    public PortfolioValuationEngine(
+            CandleStore candleStore,
+            @Value("${marketdata.history.threads:8}") int threads,
+            @Value("${marketdata.history.timeout-ms:10000}") long loadTimeoutMillis,
+            @Value("${marketdata.history.calendar:union}") String calendar
+    ) {
+        this.candleStore = candleStore;
+        this.loadTimeoutMillis = loadTimeoutMillis;
+        this.calendar = SeriesAligner.Calendar.from(calendar);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.loadExecutor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "history-load-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loadExecutor.shutdownNow();
+    }
+
+    /**
+     * Loads the newest {@code points} bars for every symbol in parallel. Symbols whose history
+     * isn't available before the deadline are left out and get valued at their last traded price;
+     * their loads keep running so the candle store is warm next time.
+     */
+    public Map<String, CandleSeries> loadSeries(List<String> symbols, String interval, int points, String requester) {
+        Map<String, CompletableFuture<CandleSeries>> pending = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            String candleSymbol = candleSymbol(symbol);
+            pending.put(symbol, CompletableFuture.supplyAsync(
+                    () -> candleStore.getSeries(candleSymbol, interval, points, requester), loadExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                    .get(loadTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("Historical data load hit the " + loadTimeoutMillis + "ms deadline; valuing the rest at last traded price");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ignored) {
+            // per-symbol failures are handled below
+        }
+
+        Map<String, CandleSeries> series = new HashMap<>();
+        pending.forEach((symbol, future) -> {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                CandleSeries bars = future.join();
+                if (bars != null && !bars.isError() && !bars.isEmpty()) {
+                    series.put(symbol, bars);
+                } else if (bars != null && bars.isError()) {
+                    System.err.println("Historical data error for " + symbol + ": " + bars.getError());
+                }
+            }
+        });
+        return series;
+    }
+
+    /**
+     * Values the timeline's holdings on a shared axis of real bar timestamps from {@code fromEpochSecond}
+     * to the newest bar. Quantities and cash come from the transaction replay at each point; closes
+     * are forward-filled onto the axis. Where a symbol has no close yet, or no history at all, its
+     * last traded price is used.
+     */
+    public Curve value(HoldingsLedgerService.Timeline timeline, Map<String, CandleSeries> series,
+                       String interval, long fromEpochSecond) {
+        List<String> symbols = timeline.getSymbols();
+        List<CandleSeries> columns = new ArrayList<>();
+        int[] column = new int[symbols.size()];
+
+        for (int s = 0; s < symbols.size(); s++) {
+            CandleSeries bars = series.get(symbols.get(s));
+            if (bars == null) {
+                column[s] = -1;
+            } else {
+                column[s] = columns.size();
+                columns.add(bars);
+            }
+        }
+
+        SeriesAligner.Aligned aligned = SeriesAligner.align(
+                columns, calendar, CandleStore.intervalSeconds(interval), fromEpochSecond);
+        long[] axis = aligned.getTimestamps();
+        if (axis.length == 0) {
+            // no price history at all: a single point valued now from the replay
+            axis = new long[]{Instant.now().getEpochSecond()};
+        }
+        int points = axis.length;
+
+        HoldingsLedgerService.Sampled holdings = timeline.sample(symbols, axis);
+        double[] curve = Arrays.copyOf(holdings.getCash(), points);
+
+        for (int s = 0; s < symbols.size(); s++) {
+            double[] quantities = holdings.getQuantities(s);
+            double[] lastPrices = holdings.getLastPrices(s);
+            double[] closes = column[s] < 0 ? null : aligned.getCloses(column[s]);
+            for (int i = 0; i < points; i++) {
+                double price = closes == null || Double.isNaN(closes[i]) ? lastPrices[i] : closes[i];
+                curve[i] += quantities[i] * price;
+            }
+        }
+
+        return new Curve(axis, curve);
+    }
+
+    /**
+     * Portfolio value per bar timestamp (epoch seconds), oldest first.
+     */
+    public static final class Curve {
+        private final long[] timestamps;
+        private final double[] values;
+
+        Curve(long[] timestamps, double[] values) {
+            this.timestamps = timestamps;
+            this.values = values;
+        }
+
+        public long[] getTimestamps() { return timestamps; }
+        public double[] getValues() { return values; }
+        public int size() { return values.length; }
+    }
+
+    // TwelveData lists crypto as pairs, so CRYPTO:ETH is stored and fetched as ETH/USD
+    static String candleSymbol(String symbol) {
+        return symbol.startsWith("CRYPTO:") ? symbol.substring(7) + "/USD" : symbol;
+    }
+}
@@ -0,0 +1,221 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.RateLimitExceededException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Token-bucket rate limiting for upstream providers. Each provider gets a bucket sized by
+ * ratelimit.<provider>.per-minute and ratelimit.<provider>.burst. When the bucket is empty,
+ * callers queue for a permit. Queued permits are handed out round-robin across requesters so
+ * one user's large request can't starve everyone else.
+ *
+ * {@link #call} blocks the calling thread, so it only queues when the permit is expected within
+ * ratelimit.max-wait-ms. When the queue is deeper than that it throws
+ * {@link RateLimitExceededException} at once rather than parking a request thread.
+ */
+@Component
+public class ProviderRateLimiter {
+
+    public static final String SHARED = "shared";
+
+    private static final Map<String, int[]> PLAN_DEFAULTS = Map.of(
+            // provider -> {requests per minute, burst}
+            "finnhub", new int[]{60, 10},
+            "coinmarketcap", new int[]{30, 5},
+            "twelvedata", new int[]{8, 8}
+    );
+
+    private final Environment env;
+    private final long maxWaitMillis;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "provider-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProviderRateLimiter(Environment env) {
+        this.env = env;
+        this.maxWaitMillis = env.getProperty("ratelimit.max-wait-ms", Long.class, 2_000L);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Returns a future that completes once the requester may make one call to the provider.
+     */
+    public CompletableFuture<Void> acquire(String provider, String requester) {
+        return bucket(provider).acquire(requester == null ? SHARED : requester, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs the upstream call on the calling thread once a permit is granted. Throws
+     * {@link RateLimitExceededException} without waiting if the permit isn't expected within
+     * ratelimit.max-wait-ms.
+     */
+    public <T> T call(String provider, String requester, Supplier<T> upstreamCall) {
+        Bucket bucket = bucket(provider);
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        CompletableFuture<Void> permit = bucket.acquire(requester == null ? SHARED : requester, maxWaitNanos);
+        if (permit == null) {
+            throw new RateLimitExceededException(provider, TimeUnit.NANOSECONDS.toMillis(bucket.estimatedWaitNanos()));
+        }
+        try {
+            // round-robin can put other requesters ahead of the estimate, so allow some slack
+            permit.get(2 * maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            permit.cancel(false);
+            throw new RateLimitExceededException(provider, TimeUnit.NANOSECONDS.toMillis(bucket.estimatedWaitNanos()));
+        } catch (InterruptedException e) {
+            permit.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a " + provider + " rate limit permit");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rate limiter failed for " + provider, e.getCause());
+        }
+        return upstreamCall.get();
+    }
+
+    public <T> T call(String provider, Supplier<T> upstreamCall) {
+        return call(provider, SHARED, upstreamCall);
+    }
+
+    public Map<String, Integer> getQueuedCounts() {
+        Map<String, Integer> queued = new LinkedHashMap<>();
+        buckets.forEach((provider, bucket) -> queued.put(provider, bucket.queued()));
+        return queued;
+    }
+
+    private Bucket bucket(String provider) {
+        return buckets.computeIfAbsent(provider, p -> {
+            int[] defaults = PLAN_DEFAULTS.getOrDefault(p, new int[]{60, 10});
+            int perMinute = env.getProperty("ratelimit." + p + ".per-minute", Integer.class, defaults[0]);
+            int burst = env.getProperty("ratelimit." + p + ".burst", Integer.class, defaults[1]);
+            return new Bucket(Math.max(1, perMinute) / 60.0, Math.max(1, burst));
+        });
+    }
+
+    private class Bucket {
+        private final double tokensPerNano;
+        private final double capacity;
+
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private boolean drainScheduled;
+
+        // requester -> waiting permits; iteration order is the round-robin order
+        private final LinkedHashMap<String, ArrayDeque<CompletableFuture<Void>>> waiting = new LinkedHashMap<>();
+
+        Bucket(double tokensPerSecond, double capacity) {
+            this.tokensPerNano = tokensPerSecond / 1_000_000_000.0;
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        // null when the permit isn't expected within maxWaitNanos; nothing is queued then
+        CompletableFuture<Void> acquire(String requester, long maxWaitNanos) {
+            synchronized (this) {
+                refill();
+                if (waiting.isEmpty() && tokens >= 1) {
+                    tokens -= 1;
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (estimatedWaitNanos() > maxWaitNanos) {
+                    return null;
+                }
+
+                CompletableFuture<Void> permit = new CompletableFuture<>();
+                waiting.computeIfAbsent(requester, r -> new ArrayDeque<>()).add(permit);
+                scheduleDrain();
+                return permit;
+            }
+        }
+
+        // time until one more permit could be granted behind everything already queued
+        synchronized long estimatedWaitNanos() {
+            refill();
+            double deficit = queued() + 1 - tokens;
+            return deficit <= 0 ? 0 : (long) Math.ceil(deficit / tokensPerNano);
+        }
+
+        synchronized int queued() {
+            return waiting.values().stream().mapToInt(ArrayDeque::size).sum();
+        }
+
+        private void drain() {
+            List<CompletableFuture<Void>> granted = new ArrayList<>();
+
+            synchronized (this) {
+                drainScheduled = false;
+                refill();
+
+                while (tokens >= 1 && !waiting.isEmpty()) {
+                    Iterator<Map.Entry<String, ArrayDeque<CompletableFuture<Void>>>> it = waiting.entrySet().iterator();
+                    Map.Entry<String, ArrayDeque<CompletableFuture<Void>>> next = it.next();
+                    it.remove();
+
+                    ArrayDeque<CompletableFuture<Void>> queue = next.getValue();
+                    CompletableFuture<Void> permit = queue.poll();
+                    if (!queue.isEmpty()) {
+                        waiting.put(next.getKey(), queue); // back of the line for this requester
+                    }
+
+                    if (permit != null && !permit.isDone()) {
+                        tokens -= 1;
+                        granted.add(permit);
+                    }
+                }
+
+                if (!waiting.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+
+            granted.forEach(permit -> permit.complete(null));
+        }
+
+        // caller holds the lock
+        private void scheduleDrain() {
+            if (drainScheduled) {
+                return;
+            }
+            long delayNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+            try {
+                scheduler.schedule(this::drain, delayNanos, TimeUnit.NANOSECONDS);
+                drainScheduled = true;
+            } catch (RejectedExecutionException e) {
+                waiting.values().forEach(queue -> queue.forEach(permit -> permit.completeExceptionally(e)));
+                waiting.clear();
+            }
+        }
+
+        // caller holds the lock
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.Quote;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes live quotes to SSE subscribers. Each subscribed symbol has exactly one poller no
+ * matter how many clients watch it. A poller only pushes when the price changes, and it is
+ * stopped once the last subscriber for its symbol goes away.
+ */
+@Service
+public class QuoteStreamHub {
+
+    private static final int MAX_SYMBOLS_PER_SUBSCRIPTION = 50;
+
+    private final MarketDataService marketDataService;
+    private final long pollSeconds;
+    private final long emitterTimeoutMillis;
+    private final ScheduledExecutorService pollers;
+
+    private final Object lock = new Object();
+    private final Map<String, SymbolFeed> feeds = new HashMap<>();
+
+    private static class SymbolFeed {
+        final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        ScheduledFuture<?> poller;
+        volatile Quote last;
+    }
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final Set<String> symbols;
+
+        Subscriber(SseEmitter emitter, Set<String> symbols) {
+            this.emitter = emitter;
+            this.symbols = symbols;
+        }
+    }
+
+    public QuoteStreamHub(
+            MarketDataService marketDataService,
+            @Value("${marketdata.stream.poll-seconds:15}") long pollSeconds,
+            @Value("${marketdata.stream.timeout-ms:1800000}") long emitterTimeoutMillis,
+            @Value("${marketdata.stream.poller-threads:4}") int pollerThreads
+    ) {
+        this.marketDataService = marketDataService;
+        this.pollSeconds = Math.max(1, pollSeconds);
+        this.emitterTimeoutMillis = emitterTimeoutMillis;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pollers = Executors.newScheduledThreadPool(Math.max(1, pollerThreads), runnable -> {
+            Thread thread = new Thread(runnable, "quote-stream-poller-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pollers.shutdownNow();
+    }
+
+    public SseEmitter subscribe(Set<String> requestedSymbols) {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (String symbol : requestedSymbols) {
+            if (symbol != null && !symbol.isBlank()) {
+                symbols.add(symbol.trim().toUpperCase());
+            }
+        }
+        if (symbols.isEmpty()) {
+            throw new IllegalArgumentException("At least one symbol is required");
+        }
+        if (symbols.size() > MAX_SYMBOLS_PER_SUBSCRIPTION) {
+            throw new IllegalArgumentException("At most " + MAX_SYMBOLS_PER_SUBSCRIPTION + " symbols per stream");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, symbols);
+
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        synchronized (lock) {
+            for (String symbol : symbols) {
+                SymbolFeed feed = feeds.computeIfAbsent(symbol, s -> new SymbolFeed());
+                feed.subscribers.add(subscriber);
+                if (feed.poller == null) {
+                    feed.poller = pollers.scheduleWithFixedDelay(() -> poll(symbol, feed), 0, pollSeconds, TimeUnit.SECONDS);
+                }
+            }
+        }
+
+        // late joiners get the current price straight away instead of waiting for the next change
+        for (String symbol : symbols) {
+            SymbolFeed feed;
+            synchronized (lock) {
+                feed = feeds.get(symbol);
+            }
+            Quote last = feed == null ? null : feed.last;
+            if (last != null) {
+                send(subscriber, last);
+            }
+        }
+
+        return emitter;
+    }
+
+    public Map<String, Integer> getSubscriberCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        synchronized (lock) {
+            feeds.forEach((symbol, feed) -> counts.put(symbol, feed.subscribers.size()));
+        }
+        return counts;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        synchronized (lock) {
+            for (String symbol : subscriber.symbols) {
+                SymbolFeed feed = feeds.get(symbol);
+                if (feed == null) continue;
+
+                feed.subscribers.remove(subscriber);
+                if (feed.subscribers.isEmpty()) {
+                    if (feed.poller != null) {
+                        feed.poller.cancel(false);
+                    }
+                    feeds.remove(symbol);
+                }
+            }
+        }
+    }
+
+    private void poll(String symbol, SymbolFeed feed) {
+        Quote quote;
+        try {
+            quote = marketDataService.getQuote(symbol);
+        } catch (Exception e) {
+            System.err.println("Quote stream poll failed for " + symbol + ": " + e.getMessage());
+            return;
+        }
+
+        Quote previous = feed.last;
+        if (previous != null && previous.getCurrent() == quote.getCurrent()) {
+            return;
+        }
+        feed.last = quote;
+
+        for (Subscriber subscriber : feed.subscribers) {
+            send(subscriber, quote);
+        }
+    }
+
+    private void send(Subscriber subscriber, Quote quote) {
+        try {
+            subscriber.emitter.send(SseEmitter.event().name("quote").data(quote));
+        } catch (IOException | IllegalStateException e) {
+            // client went away; the emitter callbacks will also fire, unsubscribing twice is harmless
+            subscriber.emitter.completeWithError(e);
+            unsubscribe(subscriber);
+        }
+    }
+}
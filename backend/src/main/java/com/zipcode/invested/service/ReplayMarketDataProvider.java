@@ -0,0 +1,184 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.MarketDataParser;
+import com.zipcode.invested.market.MarketDataProvider;
+import com.zipcode.invested.market.MarketDataType;
+import com.zipcode.invested.market.Quote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves recorded provider responses from disk so the whole stack can be load tested offline.
+ * Files use the same JSON the live providers return and go through the same parsers:
+ *
+ * <pre>
+ *   {dir}/quotes/AAPL.json          Finnhub /quote
+ *   {dir}/crypto/BTC.json           CoinMarketCap /v2/cryptocurrency/quotes/latest
+ *   {dir}/candles/AAPL_1day.json    TwelveData /time_series ("/" in symbols becomes "_")
+ * </pre>
+ *
+ * A relative {@code marketdata.replay.dir} is looked up from the working directory and then
+ * from {@code backend/} under it, so the profile works whether the app is started from the
+ * module or the repo root. Startup fails if neither exists.
+ *
+ * Each call sleeps for the configured latency plus jitter. The jitter sequence is seeded per
+ * file, so a given run order always sees the same delays. A symbol without a recording gets no
+ * result (not an error), so the provider chain falls through without tripping the circuit.
+ */
+@Component
+@Profile("replay")
+public class ReplayMarketDataProvider implements MarketDataProvider {
+
+    private final Path dir;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final long seed;
+
+    // raw file bytes, loaded on first use; an empty Optional means the file doesn't exist
+    private final ConcurrentHashMap<Path, Optional<byte[]>> files = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, AtomicLong> callCounts = new ConcurrentHashMap<>();
+
+    public ReplayMarketDataProvider(
+            @Value("${marketdata.replay.dir:replay-data}") String dir,
+            @Value("${marketdata.replay.latency-ms:50}") long latencyMillis,
+            @Value("${marketdata.replay.jitter-ms:20}") long jitterMillis,
+            @Value("${marketdata.replay.seed:42}") long seed
+    ) {
+        this.dir = resolveDir(dir);
+        this.latencyMillis = Math.max(0, latencyMillis);
+        this.jitterMillis = Math.max(0, jitterMillis);
+        this.seed = seed;
+        System.out.println("Replaying market data from " + this.dir);
+    }
+
+    @Override
+    public String getName() {
+        return "replay";
+    }
+
+    @Override
+    public Set<MarketDataType> getSupportedTypes() {
+        return Set.of(MarketDataType.STOCK_QUOTE, MarketDataType.CRYPTO_QUOTE, MarketDataType.CANDLES);
+    }
+
+    @Override
+    public Quote getQuote(String symbol) {
+        Path file = dir.resolve("quotes").resolve(fileName(symbol) + ".json");
+        Optional<byte[]> body = read(file);
+        if (body.isEmpty()) {
+            return null;
+        }
+
+        simulateLatency(file);
+        try {
+            return MarketDataParser.parseFinnhubQuote(symbol, new ByteArrayInputStream(body.get()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt recorded quote " + file + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Quote> getCryptoQuotes(Collection<String> symbols) {
+        // one simulated round trip for the whole batch, like the live multi-symbol call
+        Path cryptoDir = dir.resolve("crypto");
+        simulateLatency(cryptoDir);
+
+        Map<String, Quote> quotes = new HashMap<>();
+        for (String symbol : symbols) {
+            Path file = cryptoDir.resolve(fileName(symbol) + ".json");
+            Optional<byte[]> body = read(file);
+            if (body.isEmpty()) continue;
+
+            try {
+                quotes.putAll(MarketDataParser.parseCoinMarketCapQuotes(new ByteArrayInputStream(body.get())));
+            } catch (IOException e) {
+                System.err.println("Corrupt recorded crypto quote " + file + ": " + e.getMessage());
+            }
+        }
+        return quotes;
+    }
+
+    @Override
+    public CandleSeries getHistoricalData(String symbol, String interval, int outputsize, String requester) {
+        Path file = dir.resolve("candles").resolve(fileName(symbol) + "_" + interval + ".json");
+        Optional<byte[]> body = read(file);
+        if (body.isEmpty()) {
+            return CandleSeries.error(symbol, interval, "No recorded candles for " + symbol + " " + interval);
+        }
+
+        simulateLatency(file);
+        try {
+            return MarketDataParser.parseTwelveDataSeries(symbol, interval, new ByteArrayInputStream(body.get()))
+                    .tail(outputsize);
+        } catch (IOException e) {
+            return CandleSeries.error(symbol, interval, "Corrupt recorded candles " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static Path resolveDir(String configured) {
+        Path path = Paths.get(configured);
+        List<Path> candidates = path.isAbsolute()
+                ? List.of(path)
+                : List.of(path.toAbsolutePath(), Paths.get("backend").resolve(path).toAbsolutePath());
+        for (Path candidate : candidates) {
+            if (Files.isDirectory(candidate)) {
+                return candidate.normalize();
+            }
+        }
+        throw new IllegalStateException("Replay data directory not found; looked in " + candidates
+                + " (set marketdata.replay.dir)");
+    }
+
+    private Optional<byte[]> read(Path file) {
+        return files.computeIfAbsent(file, f -> {
+            if (!Files.isRegularFile(f)) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(Files.readAllBytes(f));
+            } catch (IOException e) {
+                System.err.println("Failed to read recorded response " + f + ": " + e.getMessage());
+                return Optional.empty();
+            }
+        });
+    }
+
+    private void simulateLatency(Path key) {
+        if (latencyMillis == 0 && jitterMillis == 0) {
+            return;
+        }
+
+        long call = callCounts.computeIfAbsent(key, k -> new AtomicLong()).getAndIncrement();
+        long jitter = jitterMillis == 0
+                ? 0
+                : new SplittableRandom(seed * 31 + dir.relativize(key).toString().hashCode() * 1_000_003L + call).nextLong(-jitterMillis, jitterMillis + 1);
+        long delay = Math.max(0, latencyMillis + jitter);
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String fileName(String symbol) {
+        return symbol.trim().toUpperCase().replace('/', '_').replace(':', '_');
+    }
+}
@@ -0,0 +1,20 @@
+package com.zipcode.invested.service;
+
+/**
+ * Published by {@link PortfolioService} when a trade changes a portfolio's cash and holdings.
+ * Listeners that cache per-user results should use a transactional listener so they only react
+ * once the trade has committed.
+ */
+public class TradeExecutedEvent {
+
+    private final Long userId;
+    private final Long portfolioId;
+
+    public TradeExecutedEvent(Long userId, Long portfolioId) {
+        this.userId = userId;
+        this.portfolioId = portfolioId;
+    }
+
+    public Long getUserId() { return userId; }
+    public Long getPortfolioId() { return portfolioId; }
+}
@@ -3,17 +3,29 @@ package com.zipcode.invested.service;
 import com.zipcode.invested.portfolio.Portfolio;
 import com.zipcode.invested.transaction.Transaction;
 import com.zipcode.invested.transaction.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class TransactionService {
+
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int STREAM_PAGE_SIZE = 500;
     
     private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
     
-    public TransactionService(TransactionRepository transactionRepository) {
+    public TransactionService(TransactionRepository transactionRepository, EntityManager entityManager) {
         this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
     }
     
     public Transaction save(Transaction transaction) {
@@ -23,4 +35,67 @@ public class TransactionService {
     public List<Transaction> findByPortfolio(Portfolio portfolio) {
         return transactionRepository.findByPortfolioOrderByTransactionDateDesc(portfolio);
     }
-}
\ No newline at end of file
+
+    /**
+     * A user's transactions across all portfolios, newest first. With a {@code limit}, at most that
+     * many are returned; pass {@link #cursorOf} of the last one as {@code cursor} for the next page.
+     */
+    public List<Transaction> findByUser(Long userId, Integer limit, String cursor) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Limit pageLimit = limit == null ? Limit.unlimited() : Limit.of(limit);
+        if (cursor == null || cursor.isBlank()) {
+            return transactionRepository.findByUserNewestFirst(userId, pageLimit);
+        }
+
+        String[] parts = decode(cursor);
+        try {
+            return transactionRepository.findByUserBefore(
+                    userId, Instant.parse(parts[0]), Long.parseLong(parts[1]), pageLimit);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Feeds every transaction of the user to {@code sink}, newest first, one keyset page of
+     * {@value #STREAM_PAGE_SIZE} at a time. Each page is its own short query, so no transaction or
+     * pooled connection stays open while the sink blocks on a slow client. Rows are detached once
+     * handled so an open-in-view persistence context doesn't grow with the history.
+     */
+    public void streamByUser(Long userId, Consumer<Transaction> sink) {
+        Limit pageLimit = Limit.of(STREAM_PAGE_SIZE);
+        List<Transaction> page = transactionRepository.findByUserNewestFirst(userId, pageLimit);
+        while (!page.isEmpty()) {
+            for (Transaction transaction : page) {
+                sink.accept(transaction);
+                entityManager.detach(transaction);
+            }
+            if (page.size() < STREAM_PAGE_SIZE) {
+                break;
+            }
+            Transaction last = page.get(page.size() - 1);
+            page = transactionRepository.findByUserBefore(userId, last.getTransactionDate(), last.getId(), pageLimit);
+        }
+    }
+
+    // Opaque to clients: the (transactionDate, id) keyset position of a transaction
+    public static String cursorOf(Transaction transaction) {
+        String position = transaction.getTransactionDate() + "|" + transaction.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String cursor) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,87 @@
+package com.zipcode.invested.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zipcode.invested.market.Quote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the trending basket warm in the background. Each refresh fetches the whole basket in
+ * one bulk lookup and stores the response body already serialized, so the endpoint only copies
+ * bytes and never waits on Finnhub. Only complete rounds are published: clients label the
+ * items by position, so a basket with a hole would shift every later quote onto the wrong ticker.
+ */
+@Service
+public class TrendingFeed {
+
+    private final MarketDataService marketDataService;
+    private final List<String> symbols;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile byte[] body;
+    private volatile Instant refreshedAt;
+
+    public TrendingFeed(
+            MarketDataService marketDataService,
+            @Value("${marketdata.trending.symbols:AAPL,NVDA,TSLA,MSFT,META}") String symbols
+    ) {
+        this.marketDataService = marketDataService;
+        this.symbols = Arrays.stream(symbols.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(String::toUpperCase)
+                .distinct()
+                .toList();
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${marketdata.trending.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            Map<String, Quote> quotes = marketDataService.getQuotes(symbols);
+
+            // keep the configured order; a partial round keeps the previous feed
+            List<Quote> basket = new ArrayList<>();
+            List<String> missing = new ArrayList<>();
+            for (String symbol : symbols) {
+                Quote quote = quotes.get(symbol);
+                if (quote != null) {
+                    basket.add(quote);
+                } else {
+                    missing.add(symbol);
+                }
+            }
+
+            if (!missing.isEmpty()) {
+                System.err.println("Trending refresh missing quotes for " + missing + "; keeping previous feed");
+                return;
+            }
+
+            body = objectMapper.writeValueAsBytes(basket);
+            refreshedAt = Instant.now();
+        } catch (Exception e) {
+            System.err.println("Trending refresh failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the serialized trending basket, or null if no refresh has succeeded yet.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public Instant getRefreshedAt() {
+        return refreshedAt;
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+}
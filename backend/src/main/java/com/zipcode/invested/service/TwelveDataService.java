@@ -1,20 +1,43 @@
 package com.zipcode.invested.service;
 
 import com.zipcode.invested.config.TwelveDataConfig;
+import com.zipcode.invested.market.CandleSeries;
+import com.zipcode.invested.market.MarketDataParser;
+import com.zipcode.invested.market.MarketDataProvider;
+import com.zipcode.invested.market.MarketDataType;
+import com.zipcode.invested.market.Quote;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
-import org.springframework.cache.annotation.Cacheable;
+
+import java.util.Set;
 
 @Service
-public class TwelveDataService {
+public class TwelveDataService implements MarketDataProvider {
     
     @Autowired
     private TwelveDataConfig config;
     
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    @Qualifier("twelveDataRestTemplate")
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private ProviderRateLimiter rateLimiter;
     
+    @Override
+    public String getName() {
+        return "twelvedata";
+    }
+
+    @Override
+    public Set<MarketDataType> getSupportedTypes() {
+        return Set.of(MarketDataType.STOCK_QUOTE, MarketDataType.CANDLES);
+    }
+
     public String getStockPrice(String symbol) {
         String url = UriComponentsBuilder
             .fromUriString(config.getBaseUrl() + "/price")
@@ -22,7 +45,7 @@ public class TwelveDataService {
             .queryParam("apikey", config.getApiKey())
             .toUriString();
         
-        return restTemplate.getForObject(url, String.class);
+        return rateLimiter.call("twelvedata", () -> restTemplate.getForObject(url, String.class));
     }
     
     public String getStockQuote(String symbol) {
@@ -32,9 +55,23 @@ public class TwelveDataService {
             .queryParam("apikey", config.getApiKey())
             .toUriString();
         
-        return restTemplate.getForObject(url, String.class);
+        return rateLimiter.call("twelvedata", () -> restTemplate.getForObject(url, String.class));
     }
     
+    // Fallback stock quote source behind Finnhub; shares the TwelveData rate limit with candles
+    @Override
+    public Quote getQuote(String symbol) {
+        String url = UriComponentsBuilder
+            .fromUriString(config.getBaseUrl() + "/quote")
+            .queryParam("symbol", symbol)
+            .queryParam("apikey", config.getApiKey())
+            .toUriString();
+
+        System.out.println("Fetching quote from TwelveData for: " + symbol);
+        return rateLimiter.call("twelvedata", () -> restTemplate.execute(url, HttpMethod.GET, null,
+                response -> MarketDataParser.parseTwelveDataQuote(symbol, response.getBody())));
+    }
+
     public String searchSymbol(String query) {
         String url = UriComponentsBuilder
             .fromUriString(config.getBaseUrl() + "/symbol_search")
@@ -42,11 +79,13 @@ public class TwelveDataService {
             .queryParam("apikey", config.getApiKey())
             .toUriString();
         
-        return restTemplate.getForObject(url, String.class);
+        return rateLimiter.call("twelvedata", () -> restTemplate.getForObject(url, String.class));
     }
 
-    @Cacheable(value = "twelveHistorical", key = "#symbol + '_' + #interval + '_' + #outputsize", unless = "#result == null")
-    public String getHistoricalData(String symbol, String interval, int outputsize) {
+    // Not cached here: CandleStore keeps the bars on disk and only asks for the missing tail.
+    // Intraday datetimes come back in exchange time; the parser converts them to UTC.
+    @Override
+    public CandleSeries getHistoricalData(String symbol, String interval, int outputsize, String requester) {
         String url = UriComponentsBuilder
                 .fromUriString(config.getBaseUrl() + "/time_series")
                 .queryParam("symbol", symbol)
@@ -58,9 +97,11 @@ public class TwelveDataService {
         System.out.println("Fetching historical data from TwelveData for: " + symbol);
         
         try {
-            String response = restTemplate.getForObject(url, String.class);
-            System.out.println("TwelveData historical response for " + symbol + ": " + response);
-            return response;
+            CandleSeries series = rateLimiter.call("twelvedata", requester, () -> restTemplate.execute(url, HttpMethod.GET, null,
+                    response -> MarketDataParser.parseTwelveDataSeries(symbol, interval, response.getBody())));
+            System.out.println("TwelveData historical response for " + symbol + ": "
+                    + (series == null ? "empty" : series.isError() ? series.getError() : series.size() + " bars"));
+            return series;
         } catch (Exception e) {
             System.err.println("Error fetching historical data from TwelveData for " + symbol + ": " + e.getMessage());
             throw e;
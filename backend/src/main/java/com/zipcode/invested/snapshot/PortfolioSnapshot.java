@@ -1,12 +1,15 @@
 package com.zipcode.invested.snapshot;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.zipcode.invested.portfolio.Portfolio;
 import jakarta.persistence.*;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "portfolio_snapshot")
+@Table(name = "portfolio_snapshot",
+        indexes = @Index(name = "idx_portfolio_snapshot_captured", columnList = "portfolio_id, captured_at"))
 public class PortfolioSnapshot {
 
     @Id
@@ -17,12 +20,25 @@ public class PortfolioSnapshot {
     @JoinColumn(name = "portfolio_id", nullable = false)
     private Portfolio portfolio;
 
-    @Column(nullable = false)
+    @Column(name = "captured_at", nullable = false)
     private Instant capturedAt = Instant.now();
 
+    // cash plus holdings at capture time, kept outside snapshotData so charts can range-query it
+    @Column(precision = 19, scale = 2)
+    private BigDecimal totalValue;
+
+    // legacy free-form payload; empty for snapshots stored in encodedData
     @Column(nullable = false, columnDefinition = "text")
     private String snapshotData;
 
+    // SnapshotCodec frame; only decodable in order from the nearest keyframe
+    @JsonIgnore
+    @Column(name = "encoded_data", length = 1_000_000)
+    private byte[] encodedData;
+
+    @Column(name = "keyframe")
+    private Boolean keyframe;
+
     protected PortfolioSnapshot() {}
 
     public PortfolioSnapshot(Portfolio portfolio, String snapshotData) {
@@ -34,8 +50,14 @@ public class PortfolioSnapshot {
     public Portfolio getPortfolio() { return portfolio; }
     public Instant getCapturedAt() { return capturedAt; }
     public String getSnapshotData() { return snapshotData; }
+    public BigDecimal getTotalValue() { return totalValue; }
+    public byte[] getEncodedData() { return encodedData; }
+    public Boolean getKeyframe() { return keyframe; }
 
     public void setPortfolio(Portfolio portfolio) { this.portfolio = portfolio; }
     public void setCapturedAt(Instant capturedAt) { this.capturedAt = capturedAt; }
     public void setSnapshotData(String snapshotData) { this.snapshotData = snapshotData; }
+    public void setTotalValue(BigDecimal totalValue) { this.totalValue = totalValue; }
+    public void setEncodedData(byte[] encodedData) { this.encodedData = encodedData; }
+    public void setKeyframe(Boolean keyframe) { this.keyframe = keyframe; }
 }
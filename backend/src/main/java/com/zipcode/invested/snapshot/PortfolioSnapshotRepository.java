@@ -1,11 +1,38 @@
 package com.zipcode.invested.snapshot;
 
 import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.user.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PortfolioSnapshotRepository extends JpaRepository<PortfolioSnapshot, Long> {
 
     List<PortfolioSnapshot> findByPortfolio(Portfolio portfolio);
+
+    Optional<PortfolioSnapshot> findFirstByPortfolioAndKeyframeTrueAndCapturedAtLessThanEqualOrderByCapturedAtDesc(
+            Portfolio portfolio, Instant capturedAt);
+
+    // Only the columns the decoder needs, oldest first, so a range read never builds entity graphs
+    @Query("select s.capturedAt, s.encodedData from PortfolioSnapshot s"
+            + " where s.portfolio = :portfolio and s.capturedAt >= :from and s.capturedAt <= :to"
+            + " and s.encodedData is not null"
+            + " order by s.capturedAt asc, s.id asc")
+    Stream<Object[]> streamEncoded(@Param("portfolio") Portfolio portfolio,
+                                   @Param("from") Instant from,
+                                   @Param("to") Instant to);
+
+    // Every portfolio captured in one tick shares the same capturedAt, so this sums a user's portfolios per tick
+    @Query("select s.capturedAt, sum(s.totalValue) from PortfolioSnapshot s"
+            + " where s.portfolio.user = :user and s.capturedAt >= :from and s.capturedAt <= :to"
+            + " and s.totalValue is not null"
+            + " group by s.capturedAt order by s.capturedAt asc")
+    List<Object[]> sumTotalValueByCapture(@Param("user") User user,
+                                          @Param("from") Instant from,
+                                          @Param("to") Instant to);
 }
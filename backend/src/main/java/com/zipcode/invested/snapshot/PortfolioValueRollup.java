@@ -0,0 +1,82 @@
+package com.zipcode.invested.snapshot;
+
+import com.zipcode.invested.portfolio.Portfolio;
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * A portfolio's captured total value summarised per hour or per day (UTC). Rows are folded in as
+ * each snapshot tick is stored, so long chart ranges read one row per bucket instead of every
+ * snapshot.
+ */
+@Entity
+@Table(name = "portfolio_value_rollup",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"portfolio_id", "resolution", "bucket_start"}),
+        indexes = @Index(name = "idx_portfolio_value_rollup_bucket", columnList = "resolution, bucket_start"))
+public class PortfolioValueRollup {
+
+    public enum Resolution {
+        HOUR(ChronoUnit.HOURS),
+        DAY(ChronoUnit.DAYS);
+
+        private final ChronoUnit unit;
+
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        public Instant bucketStart(Instant capturedAt) {
+            return capturedAt.truncatedTo(unit);
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "portfolio_id", nullable = false)
+    private Portfolio portfolio;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Resolution resolution;
+
+    @Column(name = "bucket_start", nullable = false)
+    private Instant bucketStart;
+
+    @Column(name = "open_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal openValue;
+
+    @Column(name = "min_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal minValue;
+
+    @Column(name = "max_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal maxValue;
+
+    // value at the latest capture in the bucket
+    @Column(name = "close_value", nullable = false, precision = 19, scale = 2)
+    private BigDecimal closeValue;
+
+    @Column(name = "last_captured_at", nullable = false)
+    private Instant lastCapturedAt;
+
+    @Column(name = "sample_count", nullable = false)
+    private int sampleCount;
+
+    protected PortfolioValueRollup() {}
+
+    public Long getId() { return id; }
+    public Portfolio getPortfolio() { return portfolio; }
+    public Resolution getResolution() { return resolution; }
+    public Instant getBucketStart() { return bucketStart; }
+    public BigDecimal getOpenValue() { return openValue; }
+    public BigDecimal getMinValue() { return minValue; }
+    public BigDecimal getMaxValue() { return maxValue; }
+    public BigDecimal getCloseValue() { return closeValue; }
+    public Instant getLastCapturedAt() { return lastCapturedAt; }
+    public int getSampleCount() { return sampleCount; }
+}
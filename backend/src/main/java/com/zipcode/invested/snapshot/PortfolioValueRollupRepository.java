@@ -0,0 +1,22 @@
+package com.zipcode.invested.snapshot;
+
+import com.zipcode.invested.user.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PortfolioValueRollupRepository extends JpaRepository<PortfolioValueRollup, Long> {
+
+    // Bucket closes summed across the user's portfolios, oldest first; same shape as sumTotalValueByCapture
+    @Query("select r.bucketStart, sum(r.closeValue) from PortfolioValueRollup r"
+            + " where r.portfolio.user = :user and r.resolution = :resolution"
+            + " and r.bucketStart >= :from and r.bucketStart <= :to"
+            + " group by r.bucketStart order by r.bucketStart asc")
+    List<Object[]> sumCloseValueByBucket(@Param("user") User user,
+                                         @Param("resolution") PortfolioValueRollup.Resolution resolution,
+                                         @Param("from") Instant from,
+                                         @Param("to") Instant to);
+}
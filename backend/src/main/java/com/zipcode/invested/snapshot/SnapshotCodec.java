@@ -0,0 +1,301 @@
+package com.zipcode.invested.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary encoding for {@link PortfolioSnapshot#getEncodedData()}.
+ *
+ * A frame is raw-deflated and holds, before compression:
+ * <pre>
+ *   byte    version (1)
+ *   byte    kind (0 = keyframe, 1 = delta)
+ *   varint  sequence number since the last keyframe
+ *   zigzag  cash, in cents
+ *   zigzag  total value, in cents
+ *   varint  entry count
+ *   entries: varint asset id, byte flags, then a zigzag value for each flagged field
+ * </pre>
+ * Quantities and prices are fixed-point micro-units, values are cents. A keyframe lists every
+ * holding with absolute values. A delta frame stores cash and total as differences from the
+ * previous frame and lists only holdings that changed (as field differences) or were removed.
+ */
+public final class SnapshotCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int KIND_KEYFRAME = 0;
+    private static final int KIND_DELTA = 1;
+
+    private static final int FLAG_QUANTITY = 1;
+    private static final int FLAG_PRICE = 2;
+    private static final int FLAG_VALUE = 4;
+    private static final int FLAG_REMOVED = 8;
+
+    private static final int QUANTITY = 0;
+    private static final int PRICE = 1;
+    private static final int VALUE = 2;
+
+    private SnapshotCodec() {}
+
+    /**
+     * Called for each holding when walking a {@link State}.
+     */
+    @FunctionalInterface
+    public interface HoldingVisitor {
+        void holding(long assetId, long quantityMicros, long priceMicros, long valueCents);
+    }
+
+    /**
+     * Holdings and cash of one portfolio at one capture, in fixed-point form, keyed by asset id.
+     */
+    public static final class State {
+        private long cashCents;
+        private long totalCents;
+        private final TreeMap<Long, long[]> holdings = new TreeMap<>();
+
+        public State() {}
+
+        public State(BigDecimal cash, BigDecimal total) {
+            this.cashCents = toCents(cash);
+            this.totalCents = toCents(total);
+        }
+
+        public void put(long assetId, BigDecimal quantity, BigDecimal price, BigDecimal value) {
+            holdings.put(assetId, new long[]{toMicros(quantity), toMicros(price), toCents(value)});
+        }
+
+        public long getCashCents() { return cashCents; }
+        public long getTotalCents() { return totalCents; }
+        public int size() { return holdings.size(); }
+
+        public void forEach(HoldingVisitor visitor) {
+            for (Map.Entry<Long, long[]> entry : holdings.entrySet()) {
+                long[] h = entry.getValue();
+                visitor.holding(entry.getKey(), h[QUANTITY], h[PRICE], h[VALUE]);
+            }
+        }
+    }
+
+    public static byte[] encodeKeyframe(State state, int sequence) {
+        Buffer out = new Buffer();
+        out.write(VERSION);
+        out.write(KIND_KEYFRAME);
+        out.varint(sequence);
+        out.zigzag(state.cashCents);
+        out.zigzag(state.totalCents);
+        out.varint(state.holdings.size());
+        for (Map.Entry<Long, long[]> entry : state.holdings.entrySet()) {
+            long[] h = entry.getValue();
+            out.varint(entry.getKey());
+            out.write(FLAG_QUANTITY | FLAG_PRICE | FLAG_VALUE);
+            out.zigzag(h[QUANTITY]);
+            out.zigzag(h[PRICE]);
+            out.zigzag(h[VALUE]);
+        }
+        return deflate(out.toByteArray());
+    }
+
+    public static byte[] encodeDelta(State previous, State current, int sequence) {
+        Buffer entries = new Buffer();
+        int count = 0;
+
+        for (Map.Entry<Long, long[]> entry : current.holdings.entrySet()) {
+            long[] now = entry.getValue();
+            long[] before = previous.holdings.get(entry.getKey());
+            if (before == null) before = new long[3];
+
+            int flags = 0;
+            if (now[QUANTITY] != before[QUANTITY]) flags |= FLAG_QUANTITY;
+            if (now[PRICE] != before[PRICE]) flags |= FLAG_PRICE;
+            if (now[VALUE] != before[VALUE]) flags |= FLAG_VALUE;
+            if (flags == 0 && previous.holdings.containsKey(entry.getKey())) continue;
+
+            entries.varint(entry.getKey());
+            entries.write(flags);
+            if ((flags & FLAG_QUANTITY) != 0) entries.zigzag(now[QUANTITY] - before[QUANTITY]);
+            if ((flags & FLAG_PRICE) != 0) entries.zigzag(now[PRICE] - before[PRICE]);
+            if ((flags & FLAG_VALUE) != 0) entries.zigzag(now[VALUE] - before[VALUE]);
+            count++;
+        }
+        for (Long assetId : previous.holdings.keySet()) {
+            if (!current.holdings.containsKey(assetId)) {
+                entries.varint(assetId);
+                entries.write(FLAG_REMOVED);
+                count++;
+            }
+        }
+
+        Buffer out = new Buffer();
+        out.write(VERSION);
+        out.write(KIND_DELTA);
+        out.varint(sequence);
+        out.zigzag(current.cashCents - previous.cashCents);
+        out.zigzag(current.totalCents - previous.totalCents);
+        out.varint(count);
+        out.writeBytes(entries.toByteArray());
+        return deflate(out.toByteArray());
+    }
+
+    /**
+     * Decodes frames one at a time in capture order, applying each onto a single running state.
+     * Deltas that don't follow on from the frame before them (a row is missing) are skipped until
+     * the next keyframe.
+     */
+    public static final class Reader implements AutoCloseable {
+        private State state;
+        private int sequence = -1;
+        private final Inflater inflater = new Inflater(true);
+
+        /**
+         * Applies the next frame and returns the running state, or null if the frame can't be
+         * applied yet. The returned state is reused by the next call; copy out what you need.
+         */
+        public State next(byte[] frame) {
+            byte[] raw = inflate(inflater, frame);
+            Cursor in = new Cursor(raw);
+
+            int version = in.read();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot encoding version: " + version);
+            }
+            boolean keyframe = in.read() == KIND_KEYFRAME;
+            int seq = (int) in.varint();
+
+            if (keyframe) {
+                state = new State();
+            } else if (state == null || seq != sequence + 1) {
+                state = null;
+                return null;
+            }
+            sequence = seq;
+
+            state.cashCents = keyframe ? in.zigzag() : state.cashCents + in.zigzag();
+            state.totalCents = keyframe ? in.zigzag() : state.totalCents + in.zigzag();
+
+            int count = (int) in.varint();
+            for (int i = 0; i < count; i++) {
+                long assetId = in.varint();
+                int flags = in.read();
+                if ((flags & FLAG_REMOVED) != 0) {
+                    state.holdings.remove(assetId);
+                    continue;
+                }
+                long[] h = state.holdings.computeIfAbsent(assetId, id -> new long[3]);
+                if ((flags & FLAG_QUANTITY) != 0) h[QUANTITY] += in.zigzag();
+                if ((flags & FLAG_PRICE) != 0) h[PRICE] += in.zigzag();
+                if ((flags & FLAG_VALUE) != 0) h[VALUE] += in.zigzag();
+            }
+            return state;
+        }
+
+        @Override
+        public void close() {
+            inflater.end();
+        }
+    }
+
+    public static BigDecimal fromMicros(long micros) {
+        return BigDecimal.valueOf(micros, 6);
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long toMicros(BigDecimal value) {
+        return value == null ? 0 : value.setScale(6, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value == null ? 0 : value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] chunk = new byte[512];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(Inflater inflater, byte[] compressed) {
+        inflater.reset();
+        inflater.setInput(compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+        byte[] chunk = new byte[512];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt snapshot frame: " + e.getMessage());
+        }
+        return out.toByteArray();
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void zigzag(long value) {
+            varint((value << 1) ^ (value >> 63));
+        }
+    }
+
+    private static final class Cursor {
+        private final byte[] data;
+        private int pos;
+
+        Cursor(byte[] data) {
+            this.data = data;
+        }
+
+        int read() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("Truncated snapshot frame");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        long varint() {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = read();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        long zigzag() {
+            long raw = varint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+    }
+}
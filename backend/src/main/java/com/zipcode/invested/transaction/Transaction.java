@@ -8,11 +8,14 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
-@Table(name = "transaction")
+@Table(name = "transaction",
+        indexes = @Index(name = "idx_transaction_portfolio_date", columnList = "portfolio_id, transaction_date desc, id"))
 public class Transaction {
 
+    // pooled sequence rather than IDENTITY so Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_id")
+    @SequenceGenerator(name = "transaction_id", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -1,11 +1,48 @@
 package com.zipcode.invested.transaction;
 
 import com.zipcode.invested.portfolio.Portfolio;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     
     List<Transaction> findByPortfolioOrderByTransactionDateDesc(Portfolio portfolio);
-}
\ No newline at end of file
+
+    // A user's history newest first, walking each portfolio's (portfolio_id, transaction_date desc, id) index
+    @Query("select t from Transaction t join fetch t.portfolio p join fetch p.user join fetch t.asset"
+            + " where p.user.id = :userId"
+            + " order by t.transactionDate desc, t.id desc")
+    List<Transaction> findByUserNewestFirst(@Param("userId") Long userId, Limit limit);
+
+    // The page after a (transactionDate, id) cursor; "before" is exclusive
+    @Query("select t from Transaction t join fetch t.portfolio p join fetch p.user join fetch t.asset"
+            + " where p.user.id = :userId"
+            + " and (t.transactionDate < :beforeDate or (t.transactionDate = :beforeDate and t.id < :beforeId))"
+            + " order by t.transactionDate desc, t.id desc")
+    List<Transaction> findByUserBefore(@Param("userId") Long userId,
+                                       @Param("beforeDate") Instant beforeDate,
+                                       @Param("beforeId") Long beforeId,
+                                       Limit limit);
+
+    // Replay order is (transactionDate, id); "after" is exclusive, "until" inclusive
+    @Query("select t from Transaction t where t.portfolio = :portfolio"
+            + " and (t.transactionDate > :afterDate or (t.transactionDate = :afterDate and t.id > :afterId))"
+            + " and t.transactionDate <= :until"
+            + " order by t.transactionDate asc, t.id asc")
+    List<Transaction> findForReplay(@Param("portfolio") Portfolio portfolio,
+                                    @Param("afterDate") Instant afterDate,
+                                    @Param("afterId") Long afterId,
+                                    @Param("until") Instant until);
+
+    // Net quantity and net cash per asset over all of a portfolio's transactions
+    @Query("select t.asset.id,"
+            + " sum(case when t.transactionType = 'BUY' then t.quantity else -t.quantity end),"
+            + " sum(case when t.transactionType = 'BUY' then -t.totalAmount else t.totalAmount end)"
+            + " from Transaction t where t.portfolio = :portfolio group by t.asset.id")
+    List<Object[]> sumByAsset(@Param("portfolio") Portfolio portfolio);
+}
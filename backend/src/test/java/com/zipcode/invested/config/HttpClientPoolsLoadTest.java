@@ -0,0 +1,115 @@
+package com.zipcode.invested.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HttpClientPoolsLoadTest {
+
+    private static final byte[] QUOTE = "{\"c\":190.5,\"d\":1.2,\"dp\":0.63,\"h\":191,\"l\":189,\"o\":190,\"pc\":189.3,\"t\":1700000000}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final int THREADS = 16;
+    private static final int REQUESTS = 2_000;
+
+    private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private String previousNodelay;
+    private String url;
+    private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    void startStub() throws Exception {
+        // without this every stub response waits on a delayed ACK
+        previousNodelay = System.setProperty(NODELAY, "true");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        server.createContext("/quote", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, QUOTE.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(QUOTE);
+            }
+        });
+        serverExecutor = Executors.newFixedThreadPool(THREADS);
+        server.setExecutor(serverExecutor);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/quote";
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+        // HttpServer.stop leaves the executor running
+        serverExecutor.shutdownNow();
+        if (previousNodelay == null) {
+            System.clearProperty(NODELAY);
+        } else {
+            System.setProperty(NODELAY, previousNodelay);
+        }
+    }
+
+    @Test
+    void pooledClientReusesConnectionsUnderLoad() throws Exception {
+        try (HttpClientPools pools = new HttpClientPools()) {
+            RestTemplate pooled = new RestTemplate(pools.requestFactory("stub",
+                    new HttpClientPools.Settings(THREADS, 1_000, 5_000, 1_000)));
+
+            run(pooled, REQUESTS);
+
+            // every request went over one of the pool's kept-alive connections
+            assertTrue(connections.size() <= THREADS,
+                    REQUESTS + " requests opened " + connections.size() + " connections");
+
+            var stats = pools.getStats().get("stub");
+            assertEquals(THREADS, stats.get("max"));
+            assertEquals(0, stats.get("leased"));
+            assertTrue(stats.get("available") > 0, "connections should be kept alive for reuse");
+        }
+    }
+
+    private void run(RestTemplate restTemplate, int requests) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        AtomicInteger ok = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < requests / THREADS; i++) {
+                        String body = restTemplate.getForObject(url, String.class);
+                        if (body != null && body.startsWith("{\"c\"")) {
+                            ok.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            assertEquals(requests / THREADS * THREADS, ok.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
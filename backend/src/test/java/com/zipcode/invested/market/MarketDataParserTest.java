@@ -0,0 +1,96 @@
+package com.zipcode.invested.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataParserTest {
+
+    @Test
+    void twelveDataIntradayBarsAreConvertedFromExchangeTime() throws IOException {
+        // newest first, as TwelveData sends it; one summer (EDT) and one winter (EST) bar
+        CandleSeries series = parse("AAPL", "1h", """
+                {"meta":{"symbol":"AAPL","interval":"1h","exchange_timezone":"America/New_York"},
+                 "values":[
+                   {"datetime":"2024-06-13 09:30:00","open":"1","high":"1","low":"1","close":"190.5","volume":"10"},
+                   {"datetime":"2024-01-12 09:30:00","open":"1","high":"1","low":"1","close":"185.0","volume":"10"}
+                 ],
+                 "status":"ok"}
+                """);
+
+        assertEquals(2, series.size());
+        assertEquals(Instant.parse("2024-01-12T14:30:00Z").getEpochSecond(), series.getTimestamp(0));
+        assertEquals(Instant.parse("2024-06-13T13:30:00Z").getEpochSecond(), series.getTimestamp(1));
+        assertEquals(190.5, series.getClose(1));
+    }
+
+    @Test
+    void twelveDataTimezoneAfterValuesIsStillApplied() throws IOException {
+        CandleSeries series = parse("SAP", "1h", """
+                {"values":[{"datetime":"2024-06-13 09:00:00","close":"170"}],
+                 "meta":{"exchange_timezone":"Europe/Berlin"}}
+                """);
+
+        assertEquals(Instant.parse("2024-06-13T07:00:00Z").getEpochSecond(), series.getTimestamp(0));
+    }
+
+    @Test
+    void twelveDataDailyBarsStayAtUtcMidnight() throws IOException {
+        CandleSeries series = parse("AAPL", "1day", """
+                {"meta":{"exchange_timezone":"America/New_York"},
+                 "values":[{"datetime":"2024-06-13","close":"192.9"}]}
+                """);
+
+        assertEquals(Instant.parse("2024-06-13T00:00:00Z").getEpochSecond(), series.getTimestamp(0));
+    }
+
+    @Test
+    void twelveDataWithoutTimezoneIsReadAsUtc() throws IOException {
+        CandleSeries series = parse("BTC/USD", "1h", """
+                {"values":[{"datetime":"2024-06-13 09:00:00","close":"67000"}]}
+                """);
+
+        assertEquals(Instant.parse("2024-06-13T09:00:00Z").getEpochSecond(), series.getTimestamp(0));
+    }
+
+    @Test
+    void twelveDataQuoteUsesCloseAsTheCurrentPrice() throws IOException {
+        Quote quote = MarketDataParser.parseTwelveDataQuote("AAPL", body("""
+                {"symbol":"AAPL","name":"Apple Inc","exchange":"NASDAQ","currency":"USD",
+                 "datetime":"2024-06-13","timestamp":1718285400,"open":"190.00","high":"193.92",
+                 "low":"189.05","close":"192.96","volume":"685989","previous_close":"189.50",
+                 "change":"3.46","percent_change":"1.83","is_market_open":false,
+                 "fifty_two_week":{"low":"164.08","high":"199.62"}}
+                """));
+
+        assertTrue(quote.hasPrice());
+        assertEquals(192.96, quote.getCurrent());
+        assertEquals(189.50, quote.getPreviousClose());
+        assertEquals(1.83, quote.getPercentChange());
+        assertEquals(1718285400L, quote.getTimestamp());
+    }
+
+    @Test
+    void twelveDataQuoteErrorHasNoPrice() throws IOException {
+        Quote quote = MarketDataParser.parseTwelveDataQuote("NOPE", body("""
+                {"code":404,"message":"symbol not found","status":"error"}
+                """));
+
+        assertFalse(quote.hasPrice());
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static CandleSeries parse(String symbol, String interval, String body) throws IOException {
+        return MarketDataParser.parseTwelveDataSeries(symbol, interval, body(body));
+    }
+}
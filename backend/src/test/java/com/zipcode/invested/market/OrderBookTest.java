@@ -0,0 +1,58 @@
+package com.zipcode.invested.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderBookTest {
+
+    @Test
+    void ordersFireOnlyWhenThePriceCrossesInTheirDirection() {
+        OrderBook book = new OrderBook();
+        book.add(1, micros("100"), false); // buy limit: fires when the price falls to 100
+        book.add(2, micros("110"), true);  // sell limit: fires when the price rises to 110
+        book.add(3, micros("95"), false);  // sell stop: fires when the price falls to 95
+        book.add(4, micros("105"), true);  // buy stop: fires when the price rises to 105
+
+        assertEquals(List.of(), book.trigger(micros("102")));
+        assertEquals(List.of(4L), book.trigger(micros("106")));
+        assertEquals(List.of(1L, 3L), book.trigger(micros("94")));
+        assertEquals(1, book.size());
+        assertEquals(List.of(2L), book.trigger(micros("110")));
+        assertTrue(book.isEmpty());
+    }
+
+    @Test
+    void ordersAtTheSameLevelFireInArrivalOrder() {
+        OrderBook book = new OrderBook();
+        book.add(7, micros("50"), true);
+        book.add(3, micros("50"), true);
+        book.add(9, micros("50"), true);
+        book.add(1, micros("49"), true);
+
+        // nearest level first, then arrival order within the level
+        assertEquals(List.of(1L, 7L, 3L, 9L), book.trigger(micros("50.5")));
+    }
+
+    @Test
+    void removedAndDuplicateOrdersDoNotFire() {
+        OrderBook book = new OrderBook();
+        assertTrue(book.add(1, micros("20"), false));
+        assertFalse(book.add(1, micros("20"), false));
+        assertTrue(book.add(2, micros("20"), false));
+
+        assertTrue(book.remove(1));
+        assertFalse(book.remove(1));
+        assertEquals(List.of(2L), book.trigger(micros("19.99")));
+        assertEquals(List.of(), book.trigger(micros("19.99")));
+    }
+
+    private static long micros(String price) {
+        return OrderBook.toMicros(new BigDecimal(price));
+    }
+}
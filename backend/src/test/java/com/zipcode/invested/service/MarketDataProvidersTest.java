@@ -0,0 +1,94 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.market.CircuitBreaker;
+import com.zipcode.invested.market.MarketDataParser;
+import com.zipcode.invested.market.MarketDataProvider;
+import com.zipcode.invested.market.MarketDataType;
+import com.zipcode.invested.market.Quote;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MarketDataProvidersTest {
+
+    private static final String TWELVE_DATA_QUOTE = """
+            {"symbol":"AAPL","timestamp":1718285400,"open":"190.00","high":"193.92","low":"189.05",
+             "close":"192.96","previous_close":"189.50","change":"3.46","percent_change":"1.83"}
+            """;
+
+    @Test
+    void stockQuotesFallBackToTwelveDataWhileFinnhubCircuitIsOpen() {
+        AtomicInteger finnhubCalls = new AtomicInteger();
+        AtomicInteger twelveDataCalls = new AtomicInteger();
+
+        MarketDataProvider finnhub = provider("finnhub", symbol -> {
+            finnhubCalls.incrementAndGet();
+            throw new IllegalStateException("Finnhub is down");
+        });
+        MarketDataProvider twelveData = provider("twelvedata", symbol -> {
+            twelveDataCalls.incrementAndGet();
+            try {
+                return MarketDataParser.parseTwelveDataQuote(symbol,
+                        new ByteArrayInputStream(TWELVE_DATA_QUOTE.getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        MarketDataProviders providers = new MarketDataProviders(List.of(finnhub, twelveData),
+                "finnhub,twelvedata", "finnhub,twelvedata", "", "", 2, 60_000);
+
+        // Finnhub fails twice and opens its circuit; both calls are still answered by TwelveData
+        for (int i = 0; i < 2; i++) {
+            Quote quote = providers.quote("AAPL");
+            assertEquals("twelvedata", quote.getSource());
+            assertEquals(192.96, quote.getCurrent());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, providers.getBreakerStatus().get("finnhub").get("state"));
+
+        // with the circuit open, Finnhub isn't called at all
+        Quote quote = providers.quote("AAPL");
+        assertEquals("twelvedata", quote.getSource());
+        assertEquals(2, finnhubCalls.get());
+        assertEquals(3, twelveDataCalls.get());
+    }
+
+    @Test
+    void allProvidersOpenFailsWithoutCallingThem() {
+        AtomicInteger calls = new AtomicInteger();
+        MarketDataProvider finnhub = provider("finnhub", symbol -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("down");
+        });
+
+        MarketDataProviders providers = new MarketDataProviders(List.of(finnhub),
+                "finnhub", "finnhub", "", "", 1, 60_000);
+
+        assertThrows(IllegalStateException.class, () -> providers.quote("AAPL"));
+        assertThrows(IllegalStateException.class, () -> providers.quote("AAPL"));
+        assertEquals(1, calls.get());
+    }
+
+    private static MarketDataProvider provider(String name, Function<String, Quote> quotes) {
+        return new MarketDataProvider() {
+            @Override
+            public String getName() { return name; }
+
+            @Override
+            public Set<MarketDataType> getSupportedTypes() { return Set.of(MarketDataType.STOCK_QUOTE); }
+
+            @Override
+            public Quote getQuote(String symbol) { return quotes.apply(symbol); }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.dto.PlaceOrderRequest;
+import com.zipcode.invested.order.TradeOrder;
+import com.zipcode.invested.order.TradeOrderRepository;
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.portfolio.PortfolioRepository;
+import com.zipcode.invested.position.PortfolioPosition;
+import com.zipcode.invested.position.PortfolioPositionRepository;
+import com.zipcode.invested.user.User;
+import com.zipcode.invested.user.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Places trigger orders through the engine and drives them with price ticks. The cancel tests run
+ * with one EntityManager bound to the thread, the way open-in-view does for a request, so a stale
+ * cached order would show up in the result.
+ */
+@SpringBootTest
+class OrderEngineTest {
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private PortfolioRepository portfolioRepository;
+    @Autowired private PortfolioPositionRepository positionRepository;
+    @Autowired private TradeOrderRepository orderRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private OrderEngine orderEngine;
+
+    @Test
+    void buyLimitFillsWhenThePriceFallsToIt() {
+        Portfolio portfolio = newPortfolio();
+        TradeOrder order = orderEngine.place(new PlaceOrderRequest(portfolio.getId(), "BUY", "LIMIT",
+                "ENGFILL", "Engine Fill Co", "STOCK", new BigDecimal("10"), new BigDecimal("100")));
+
+        assertEquals(0, orderEngine.onPrice("ENGFILL", new BigDecimal("102")));
+        assertEquals(1, orderEngine.onPrice("ENGFILL", new BigDecimal("99.50")));
+        assertEquals(0, orderEngine.onPrice("ENGFILL", new BigDecimal("98")));
+
+        TradeOrder filled = orderRepository.findById(order.getId()).orElseThrow();
+        assertEquals(TradeOrder.Status.FILLED, filled.getStatus());
+        assertEquals(0, new BigDecimal("99.50").compareTo(filled.getFillPrice()));
+        assertNotNull(filled.getTransactionId());
+
+        Portfolio reloaded = portfolioRepository.findById(portfolio.getId()).orElseThrow();
+        assertEquals(0, new BigDecimal("9005.00").compareTo(reloaded.getCashBalance()));
+        List<PortfolioPosition> positions = positionRepository.findByPortfolioWithAsset(reloaded);
+        assertEquals(1, positions.size());
+        assertEquals(0, BigDecimal.TEN.compareTo(positions.get(0).getQuantity()));
+    }
+
+    @Test
+    void cancelReturnsTheCancelledOrder() {
+        Portfolio portfolio = newPortfolio();
+        withRequestEntityManager(() -> {
+            TradeOrder order = orderEngine.place(new PlaceOrderRequest(portfolio.getId(), "SELL", "STOP",
+                    "ENGCXL", null, "STOCK", BigDecimal.ONE, new BigDecimal("40")));
+
+            assertEquals(TradeOrder.Status.CANCELLED, orderEngine.cancel(order.getId()).getStatus());
+            assertEquals(0, orderEngine.onPrice("ENGCXL", new BigDecimal("39")));
+        });
+    }
+
+    @Test
+    void cancelAfterAConcurrentFillReportsTheFill() {
+        Portfolio portfolio = newPortfolio();
+        withRequestEntityManager(() -> {
+            TradeOrder order = orderEngine.place(new PlaceOrderRequest(portfolio.getId(), "BUY", "STOP",
+                    "ENGRACE", null, "STOCK", BigDecimal.ONE, new BigDecimal("20")));
+            // this thread's EntityManager now holds the order as OPEN; another thread fills it
+            assertEquals(1, CompletableFuture.supplyAsync(
+                    () -> orderEngine.onPrice("ENGRACE", new BigDecimal("21"))).join());
+
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> orderEngine.cancel(order.getId()));
+            assertEquals("Order " + order.getId() + " is already FILLED", e.getMessage());
+        });
+    }
+
+    private Portfolio newPortfolio() {
+        User user = userRepository.save(new User("orders-" + System.nanoTime() + "@example.com", "Orders"));
+        return portfolioRepository.save(new Portfolio(user, "Orders"));
+    }
+
+    private void withRequestEntityManager(Runnable body) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            body.run();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+}
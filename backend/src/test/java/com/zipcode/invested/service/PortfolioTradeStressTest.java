@@ -0,0 +1,139 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.dto.BuyRequest;
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.portfolio.PortfolioRepository;
+import com.zipcode.invested.position.PortfolioPosition;
+import com.zipcode.invested.position.PortfolioPositionRepository;
+import com.zipcode.invested.transaction.TransactionRepository;
+import com.zipcode.invested.user.User;
+import com.zipcode.invested.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hammers two portfolios with concurrent buys and sells and checks that no trade was lost and no
+ * balance went negative: each portfolio's cash and quantities must equal what its recorded
+ * transactions add up to.
+ */
+@SpringBootTest
+class PortfolioTradeStressTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 150;
+    private static final BigDecimal PRICE = new BigDecimal("50.00");
+    private static final BigDecimal STARTING_CASH = new BigDecimal("10000.00");
+    private static final List<String> SYMBOLS = List.of("AAPL", "MSFT");
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private PortfolioRepository portfolioRepository;
+    @Autowired private PortfolioPositionRepository positionRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private PortfolioService portfolioService;
+
+    @Test
+    void concurrentTradesKeepCashAndQuantitiesConsistent() throws Exception {
+        User user = userRepository.save(new User("stress-" + System.nanoTime() + "@example.com", "Stress"));
+        List<Portfolio> portfolios = List.of(
+                portfolioRepository.save(new Portfolio(user, "Stress A")),
+                portfolioRepository.save(new Portfolio(user, "Stress B")));
+
+        AtomicInteger filled = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long elapsed;
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        Portfolio portfolio = portfolios.get(random.nextInt(portfolios.size()));
+                        String symbol = SYMBOLS.get(random.nextInt(SYMBOLS.size()));
+                        BigDecimal quantity = BigDecimal.valueOf(1 + random.nextInt(3));
+                        try {
+                            // buys outnumber sells so cash runs out and the funds check gets exercised
+                            if (random.nextInt(10) < 6) {
+                                portfolioService.executeBuy(portfolio.getId(),
+                                        new BuyRequest(symbol, symbol, "STOCK", quantity, PRICE));
+                            } else {
+                                PortfolioPosition position = findPosition(portfolio, symbol);
+                                if (position == null) {
+                                    rejected.incrementAndGet();
+                                    continue;
+                                }
+                                portfolioService.executeSell(portfolio.getId(), position.getId(), quantity, PRICE);
+                            }
+                            filled.incrementAndGet();
+                        } catch (IllegalArgumentException e) {
+                            // insufficient funds or shares, or the position closed meanwhile
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            elapsed = System.nanoTime() - start;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        System.out.printf("%d orders on %d threads: %d filled, %d rejected, %.0f orders/s%n",
+                THREADS * ORDERS_PER_THREAD, THREADS, filled.get(), rejected.get(),
+                THREADS * ORDERS_PER_THREAD / (elapsed / 1_000_000_000.0));
+
+        int recorded = 0;
+        for (Portfolio portfolio : portfolios) {
+            Portfolio reloaded = portfolioRepository.findById(portfolio.getId()).orElseThrow();
+
+            BigDecimal netCash = BigDecimal.ZERO;
+            Map<Long, BigDecimal> netQuantity = new HashMap<>();
+            for (Object[] row : transactionRepository.sumByAsset(reloaded)) {
+                netQuantity.put((Long) row[0], (BigDecimal) row[1]);
+                netCash = netCash.add((BigDecimal) row[2]);
+            }
+            recorded += transactionRepository.findByPortfolioOrderByTransactionDateDesc(reloaded).size();
+
+            assertTrue(reloaded.getCashBalance().signum() >= 0, "cash overdrawn: " + reloaded.getCashBalance());
+            assertEquals(0, STARTING_CASH.add(netCash).compareTo(reloaded.getCashBalance()),
+                    "cash " + reloaded.getCashBalance() + " does not match transactions " + STARTING_CASH.add(netCash));
+
+            for (PortfolioPosition position : positionRepository.findByPortfolio(reloaded)) {
+                BigDecimal expected = netQuantity.remove(position.getAsset().getId());
+                assertTrue(position.getQuantity().signum() > 0);
+                assertEquals(0, expected.compareTo(position.getQuantity()),
+                        position.getAsset().getSymbol() + " quantity does not match transactions");
+            }
+            // assets without a position must have been sold down to zero
+            netQuantity.values().forEach(net -> assertEquals(0, net.signum()));
+        }
+        assertEquals(filled.get(), recorded);
+    }
+
+    private PortfolioPosition findPosition(Portfolio portfolio, String symbol) {
+        for (PortfolioPosition position : positionRepository.findByPortfolio(portfolio)) {
+            if (position.getAsset().getSymbol().equals(symbol)) {
+                return position;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+package com.zipcode.invested.service;
+
+import com.zipcode.invested.asset.Asset;
+import com.zipcode.invested.asset.AssetRepository;
+import com.zipcode.invested.controller.PortfolioController;
+import com.zipcode.invested.dto.UserHoldings;
+import com.zipcode.invested.portfolio.Portfolio;
+import com.zipcode.invested.portfolio.PortfolioRepository;
+import com.zipcode.invested.position.PortfolioPosition;
+import com.zipcode.invested.position.PortfolioPositionRepository;
+import com.zipcode.invested.user.User;
+import com.zipcode.invested.user.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The user-level portfolio views must read every portfolio, position and asset in one select,
+ * however many portfolios the user has.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "marketdata.replay.latency-ms=0",
+        "marketdata.replay.jitter-ms=0"
+})
+@ActiveProfiles("replay")
+class UserHoldingsQueryCountTest {
+
+    @Autowired private UserRepository userRepository;
+    @Autowired private PortfolioRepository portfolioRepository;
+    @Autowired private AssetRepository assetRepository;
+    @Autowired private PortfolioPositionRepository positionRepository;
+    @Autowired private PortfolioService portfolioService;
+    @Autowired private PortfolioController portfolioController;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    private User user;
+    private Statistics statistics;
+
+    @BeforeEach
+    void createHoldings() {
+        user = userRepository.save(new User("holdings-" + System.nanoTime() + "@example.com", "Holdings"));
+        List<Asset> assets = List.of(asset("AAPL", "STOCK"), asset("MSFT", "STOCK"), asset("NVDA", "STOCK"));
+
+        for (int i = 0; i < 3; i++) {
+            Portfolio portfolio = portfolioRepository.save(new Portfolio(user, "Portfolio " + i));
+            // the last portfolio holds only cash
+            for (int a = 0; i < 2 && a < assets.size(); a++) {
+                positionRepository.save(new PortfolioPosition(portfolio, assets.get(a),
+                        BigDecimal.valueOf(a + 1), BigDecimal.valueOf(100)));
+            }
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void holdingsLoadInOneStatement() {
+        UserHoldings holdings = portfolioService.findHoldingsByUser(user);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(3, holdings.getPortfolios().size());
+        assertEquals(6, holdings.getPositions().size());
+        assertTrue(holdings.getPositions(holdings.getPortfolios().get(2)).isEmpty());
+        assertEquals(0, new BigDecimal("30000").compareTo(holdings.getTotalCash()));
+        // associations were fetched with the positions
+        holdings.getPositions().forEach(p -> p.getAsset().getSymbol());
+        holdings.getPositions().forEach(p -> p.getPortfolio().getUser().getEmail());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void userLevelEndpointsDoNotSelectPerPortfolio() {
+        // one lookup for the user and one for the holdings
+        Map<String, Object> summary = portfolioController.getUserPortfolioSummary(user.getId()).getBody();
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(6, summary.get("totalPositions"));
+        assertEquals(3, summary.get("portfolioCount"));
+
+        statistics.clear();
+        List<Map<String, Object>> positions = portfolioController.getAllUserPositions(user.getId()).getBody();
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(6, positions.size());
+    }
+
+    private Asset asset(String symbol, String type) {
+        return assetRepository.findBySymbolAndAssetType(symbol, type).orElseGet(() -> assetRepository.save(new Asset(symbol, symbol, type)));
+    }
+}